@@ -0,0 +1,196 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms;
+
+import io.jrb.labs.tasksms.mapping.LookupValueRowConverter;
+import io.jrb.labs.tasksms.mapping.TaskMapper;
+import io.jrb.labs.tasksms.mapping.TaskRowConverter;
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.model.History;
+import io.jrb.labs.tasksms.model.HistoryType;
+import io.jrb.labs.tasksms.model.LookupValue;
+import io.jrb.labs.tasksms.model.LookupValueType;
+import io.jrb.labs.tasksms.model.Task;
+import io.jrb.labs.tasksms.model.TaskStatus;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import io.jrb.labs.tasksms.tenant.TenantContext;
+import io.r2dbc.spi.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.r2dbc.convert.MappingR2dbcConverter;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.H2Dialect;
+import org.springframework.data.r2dbc.mapping.R2dbcMappingContext;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TaskMappingBenchmark {
+
+    @Param({"builder", "mapper"})
+    public String mapping;
+
+    private MappingR2dbcConverter converter;
+    private Row taskRow;
+    private List<Row> lookupRows;
+    private TaskResource request;
+
+    @Setup
+    public void setUp() {
+        final R2dbcCustomConversions conversions = "mapper".equals(mapping)
+                ? R2dbcCustomConversions.of(H2Dialect.INSTANCE, new TaskRowConverter(), new LookupValueRowConverter())
+                : R2dbcCustomConversions.of(H2Dialect.INSTANCE);
+        final R2dbcMappingContext mappingContext = new R2dbcMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = new MappingR2dbcConverter(mappingContext, conversions);
+
+        final Map<String, Object> task = new HashMap<>();
+        task.put("ta_id", 42);
+        task.put("guid", UUID.randomUUID());
+        task.put("tenant_id", TenantContext.DEFAULT_TENANT);
+        task.put("name", "mapping benchmark");
+        task.put("description", "mapping benchmark task");
+        task.put("status", TaskStatus.PENDING.name());
+        task.put("created_on", LocalDateTime.now());
+        taskRow = new MapRow(task);
+
+        lookupRows = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final Map<String, Object> lookupValue = new HashMap<>();
+            lookupValue.put("lv_id", i);
+            lookupValue.put("tenant_id", TenantContext.DEFAULT_TENANT);
+            lookupValue.put("entity_type", EntityType.TASK.name());
+            lookupValue.put("entity_id", 42L);
+            final LookupValueType valueType = (i % 2 == 0) ? LookupValueType.GROUP : LookupValueType.TAG;
+            lookupValue.put("lookup_value_type", valueType.name());
+            lookupValue.put("lookup_value", "value-" + i);
+            lookupRows.add(new MapRow(lookupValue));
+        }
+
+        request = TaskResource.builder()
+                .name("mapping benchmark")
+                .description("mapping benchmark task")
+                .group("value-0")
+                .tag("value-1")
+                .build();
+    }
+
+    @Benchmark
+    public void createTask(final Blackhole blackhole) {
+        final Instant now = Instant.now();
+        if ("mapper".equals(mapping)) {
+            final Task task = TaskMapper.toEntity(request, UUID.randomUUID(), TenantContext.DEFAULT_TENANT,
+                    TaskStatus.PENDING, null, now).withId(42L);
+            blackhole.consume(new History(0L, task.getTenantId(), EntityType.TASK, task.getId(), task.getGuid(),
+                    HistoryType.CREATED, now));
+            blackhole.consume(TaskMapper.toResource(task, request.getGroups(), request.getTags()));
+        } else {
+            final Task task = Task.builder()
+                    .guid(UUID.randomUUID())
+                    .name(request.getName())
+                    .description(request.getDescription())
+                    .status(TaskStatus.PENDING)
+                    .createdOn(now)
+                    .build()
+                    .toBuilder()
+                    .id(42L)
+                    .build();
+            blackhole.consume(History.builder()
+                    .entityType(EntityType.TASK)
+                    .entityId(task.getId())
+                    .entityGuid(task.getGuid())
+                    .eventType(HistoryType.CREATED)
+                    .createdOn(now)
+                    .build());
+            blackhole.consume(TaskResource.fromEntity(task)
+                    .groups(request.getGroups())
+                    .tags(request.getTags())
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public TaskResource findTask() {
+        final Task task = converter.read(Task.class, taskRow);
+        final List<LookupValue> values = new ArrayList<>(lookupRows.size());
+        for (final Row row : lookupRows) {
+            values.add(converter.read(LookupValue.class, row));
+        }
+        if ("mapper".equals(mapping)) {
+            return TaskMapper.toResource(task, values);
+        }
+        final TaskResource.TaskResourceBuilder builder = TaskResource.fromEntity(task);
+        for (final LookupValue value : values) {
+            if (value.getValueType() == LookupValueType.GROUP) {
+                builder.group(value.getValue());
+            } else {
+                builder.tag(value.getValue());
+            }
+        }
+        return builder.build();
+    }
+
+    private static final class MapRow implements Row {
+
+        private final Map<String, Object> values;
+
+        private MapRow(final Map<String, Object> values) {
+            this.values = values;
+        }
+
+        @Override
+        public <T> T get(final int index, final Class<T> type) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T> T get(final String name, final Class<T> type) {
+            return type.cast(values.get(name.toLowerCase()));
+        }
+
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.jrb.labs.tasksms.model.Projection;
+import io.jrb.labs.tasksms.model.TaskStatus;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import io.jrb.labs.tasksms.resource.TaskTableResource;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TaskPayloadBenchmark {
+
+    private static final int TASKS = 10_000;
+
+    @Param({"rows", "columnar"})
+    public String layout;
+
+    @Param({"identity", "gzip"})
+    public String encoding;
+
+    private ObjectWriter writer;
+    private Object payload;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+        public long payloadBytes;
+    }
+
+    @Setup
+    public void setUp() {
+        final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        final List<TaskResource> tasks = IntStream.range(0, TASKS)
+                .mapToObj(i -> TaskResource.builder()
+                        .guid(UUID.randomUUID())
+                        .name("task " + i)
+                        .description("payload benchmark task " + i)
+                        .status(TaskStatus.values()[i % TaskStatus.values().length])
+                        .createdOn(Instant.now())
+                        .build())
+                .collect(Collectors.toList());
+        if ("columnar".equals(layout)) {
+            writer = objectMapper.writer();
+            payload = TaskTableResource.fromResources(tasks);
+        } else {
+            writer = objectMapper.writerWithView(Projection.Summary.class);
+            payload = tasks;
+        }
+    }
+
+    @Benchmark
+    public int encodeList(final PayloadSize size) throws IOException {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 20);
+        try (OutputStream out = "gzip".equals(encoding) ? new GZIPOutputStream(buffer) : buffer) {
+            writer.writeValue(out, payload);
+        }
+        size.payloadBytes = buffer.size();
+        return buffer.size();
+    }
+
+}
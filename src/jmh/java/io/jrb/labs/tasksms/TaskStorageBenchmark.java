@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms;
+
+import io.jrb.labs.tasksms.model.Projection;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import io.jrb.labs.tasksms.service.TaskService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TaskStorageBenchmark {
+
+    private static final int SEED_TASKS = 1000;
+
+    private static final TaskResource TASK = TaskResource.builder()
+            .name("benchmark")
+            .description("storage engine benchmark")
+            .group("bench")
+            .tag("A")
+            .tag("B")
+            .build();
+
+    @Param({"r2dbc", "journal"})
+    public String engine;
+
+    private Path journalDirectory;
+    private ConfigurableApplicationContext context;
+    private TaskService taskService;
+    private List<UUID> guids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        journalDirectory = Files.createTempDirectory("tasks-journal");
+        context = new SpringApplicationBuilder(TasksMsApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--tasks.storage.engine=" + engine,
+                        "--tasks.storage.journal.directory=" + journalDirectory);
+        taskService = context.getBean(TaskService.class);
+        guids = Flux.range(0, SEED_TASKS)
+                .concatMap(i -> taskService.createTask(TASK))
+                .map(TaskResource::getGuid)
+                .collectList()
+                .block();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(journalDirectory);
+    }
+
+    @Benchmark
+    public TaskResource createTask() {
+        return taskService.createTask(TASK).block();
+    }
+
+    @Benchmark
+    public TaskResource findTaskByGuid() {
+        final UUID guid = guids.get(ThreadLocalRandom.current().nextInt(guids.size()));
+        return taskService.findTaskByGuid(guid, Projection.DEEP).block();
+    }
+
+}
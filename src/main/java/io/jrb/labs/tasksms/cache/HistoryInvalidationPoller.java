@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.cache;
+
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.model.History;
+import io.jrb.labs.tasksms.repository.HistoryRepository;
+import io.jrb.labs.tasksms.schedule.PeriodicJob;
+import io.jrb.labs.tasksms.schedule.PeriodicJobSupport;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Slf4j
+public class HistoryInvalidationPoller extends PeriodicJobSupport {
+
+    private final HistoryRepository historyRepository;
+    private final CacheInvalidationTransport transport;
+    private final ShardRouter shardRouter;
+    private final Duration settleDelay;
+    private final int batchSize;
+    private final ShardCursor[] cursors;
+
+    public HistoryInvalidationPoller(
+            final HistoryRepository historyRepository,
+            final CacheInvalidationTransport transport,
+            final ShardRouter shardRouter,
+            final Duration interval,
+            final Duration settleDelay,
+            final int batchSize
+    ) {
+        this.historyRepository = historyRepository;
+        this.transport = transport;
+        this.shardRouter = shardRouter;
+        this.settleDelay = settleDelay;
+        this.batchSize = batchSize;
+        this.cursors = new ShardCursor[shardRouter.getShardCount()];
+        Arrays.setAll(cursors, shard -> new ShardCursor());
+        register(PeriodicJob.every(interval, "poll task history for cache invalidations", this::poll)
+                .warmingUpWith(() -> Flux.fromIterable(shardRouter.shards())
+                        .concatMap(shard -> shardRouter.onShard(shard, historyRepository.findMaxId())
+                                .doOnNext(maxId -> cursors[shard].settledId = maxId))));
+    }
+
+    Mono<Void> poll() {
+        final Instant settledBefore = Instant.now().minus(settleDelay);
+        return Flux.fromIterable(shardRouter.shards())
+                .concatMap(shard -> shardRouter.onShard(shard, pollShard(cursors[shard], settledBefore)))
+                .then();
+    }
+
+    private Flux<List<History>> pollShard(final ShardCursor cursor, final Instant settledBefore) {
+        return pollBatch(cursor, cursor.settledId, settledBefore)
+                .expand(histories -> (histories.size() < batchSize)
+                        ? Mono.empty()
+                        : pollBatch(cursor, histories.get(histories.size() - 1).getId(), settledBefore));
+    }
+
+    private Mono<List<History>> pollBatch(final ShardCursor cursor, final long afterId, final Instant settledBefore) {
+        return historyRepository.findBatchAfter(afterId, batchSize)
+                .collectList()
+                .filter(histories -> !histories.isEmpty())
+                .flatMap(histories -> transport.broadcast(histories.stream()
+                                .filter(history -> !cursor.broadcast.contains(history.getId()))
+                                .filter(history -> history.getEntityType() == EntityType.TASK)
+                                .filter(history -> history.getEntityGuid() != null)
+                                .map(history -> TaskInvalidation.builder()
+                                        .guid(history.getEntityGuid())
+                                        .version(history.getId())
+                                        .occurredOn(history.getCreatedOn())
+                                        .build())
+                                .collect(Collectors.toList()))
+                        .doOnSuccess(v -> cursor.advance(afterId, histories, settledBefore))
+                        .thenReturn(histories));
+    }
+
+    private static class ShardCursor {
+
+        private final Set<Long> broadcast = new HashSet<>();
+        private volatile long settledId;
+
+        private void advance(final long afterId, final List<History> histories, final Instant settledBefore) {
+            boolean contiguous = afterId == settledId;
+            for (final History history : histories) {
+                final Instant createdOn = history.getCreatedOn();
+                if (contiguous && (createdOn == null || createdOn.isBefore(settledBefore))) {
+                    settledId = history.getId();
+                } else {
+                    contiguous = false;
+                    broadcast.add(history.getId());
+                }
+            }
+            final long settled = settledId;
+            broadcast.removeIf(id -> id <= settled);
+        }
+
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.cache;
+
+import com.github.fge.jsonpatch.JsonPatch;
+import io.jrb.labs.tasksms.model.LookupValueType;
+import io.jrb.labs.tasksms.model.Projection;
+import io.jrb.labs.tasksms.model.TaskStatus;
+import io.jrb.labs.tasksms.model.TaskTransition;
+import io.jrb.labs.tasksms.resource.TaskLookupResource;
+import io.jrb.labs.tasksms.schedule.PeriodicJob;
+import io.jrb.labs.tasksms.schedule.PeriodicJobSupport;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import io.jrb.labs.tasksms.service.TaskService;
+import io.jrb.labs.tasksms.tenant.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class NearCacheTaskService extends PeriodicJobSupport implements TaskService {
+
+    private final TaskService delegate;
+    private final CacheInvalidationTransport transport;
+    private final long ttlNanos;
+    private final int maxSize;
+    private final Map<CacheKey, CachedTask> entries;
+    private final ConcurrentMap<UUID, Tombstone> tombstones;
+    private final AtomicLong epoch;
+    private final AtomicLong version;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter invalidationCounter;
+    private final Counter evictionCounter;
+    private final Timer stalenessTimer;
+
+    private Disposable subscription;
+
+    public NearCacheTaskService(
+            final TaskService delegate,
+            final CacheInvalidationTransport transport,
+            final MeterRegistry meterRegistry,
+            final Duration ttl,
+            final int maxSize
+    ) {
+        this.delegate = delegate;
+        this.transport = transport;
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+        this.tombstones = new ConcurrentHashMap<>();
+        this.epoch = new AtomicLong();
+        this.version = new AtomicLong();
+        this.hitCounter = meterRegistry.counter("tasks.cache.hits");
+        this.missCounter = meterRegistry.counter("tasks.cache.misses");
+        this.invalidationCounter = meterRegistry.counter("tasks.cache.invalidations");
+        this.evictionCounter = meterRegistry.counter("tasks.cache.evictions");
+        this.stalenessTimer = meterRegistry.timer("tasks.cache.staleness");
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<CacheKey, CachedTask> eldest) {
+                if (size() > maxSize) {
+                    evictionCounter.increment();
+                    return true;
+                }
+                return false;
+            }
+        });
+        meterRegistry.gaugeMapSize("tasks.cache.size", List.of(), entries);
+        meterRegistry.gauge("tasks.cache.version", version);
+        register(PeriodicJob.every(ttl, "clean up near-cache", () -> Mono.fromRunnable(this::cleanUp)));
+    }
+
+    @Override
+    public void onApplicationEvent(final ApplicationReadyEvent event) {
+        log.info("Serving task reads from near-cache (ttl={}ms, maxSize={})", ttlNanos / 1_000_000, maxSize);
+        subscription = transport.invalidations().subscribe(this::applyInvalidation);
+        super.onApplicationEvent(event);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        super.destroy();
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    @Override
+    public Mono<TaskResource> createTask(final TaskResource task) {
+        return delegate.createTask(task);
+    }
+
+    @Override
+    public Mono<Void> deleteTask(final UUID taskGuid) {
+        return delegate.deleteTask(taskGuid)
+                .doFinally(signal -> invalidate(taskGuid));
+    }
+
+    @Override
+    public Mono<TaskResource> findTaskByGuid(final UUID guid, final Projection projection) {
+        final CacheKey key = new CacheKey(guid, projection);
+        return TenantContext.current().flatMap(tenantId -> {
+            final CachedTask cached = entries.get(key);
+            if (cached != null && cached.getTenantId().equals(tenantId)
+                    && cached.getExpiresAt() - System.nanoTime() > 0) {
+                hitCounter.increment();
+                return Mono.just(cached.getTask());
+            }
+            missCounter.increment();
+            final long loadEpoch = epoch.get();
+            return delegate.findTaskByGuid(guid, projection)
+                    .doOnNext(task -> store(key, tenantId, task, loadEpoch));
+        });
+    }
+
+    @Override
+    public Flux<TaskLookupResource> findTasksByGuids(final List<UUID> guids, final Projection projection) {
+        return delegate.findTasksByGuids(guids, projection);
+    }
+
+    @Override
+    public Flux<TaskResource> listAllTasks() {
+        return delegate.listAllTasks();
+    }
+
+    @Override
+    public Flux<TaskResource> listTasksByLookupValue(final LookupValueType type, final String value) {
+        return delegate.listTasksByLookupValue(type, value);
+    }
+
+    @Override
+    public Flux<TaskResource> listTasksByStatus(final TaskStatus status, final UUID after, final int limit) {
+        return delegate.listTasksByStatus(status, after, limit);
+    }
+
+    @Override
+    public Mono<TaskResource> restoreTask(final UUID guid) {
+        return delegate.restoreTask(guid)
+                .doFinally(signal -> invalidate(guid));
+    }
+
+    @Override
+    public Mono<TaskResource> transitionTask(final UUID guid, final TaskTransition transition) {
+        return delegate.transitionTask(guid, transition)
+                .doFinally(signal -> invalidate(guid));
+    }
+
+    @Override
+    public Mono<TaskResource> updateTask(final UUID guid, final JsonPatch patch) {
+        return delegate.updateTask(guid, patch)
+                .doFinally(signal -> invalidate(guid));
+    }
+
+    private void applyInvalidation(final TaskInvalidation invalidation) {
+        version.accumulateAndGet(invalidation.getVersion(), Math::max);
+        if (invalidation.getOccurredOn() != null) {
+            stalenessTimer.record(Duration.between(invalidation.getOccurredOn(), Instant.now()));
+        }
+        invalidate(invalidation.getGuid());
+    }
+
+    private void invalidate(final UUID guid) {
+        tombstones.put(guid, new Tombstone(epoch.incrementAndGet(), System.nanoTime()));
+        for (final Projection projection : Projection.values()) {
+            if (entries.remove(new CacheKey(guid, projection)) != null) {
+                invalidationCounter.increment();
+            }
+        }
+    }
+
+    private void store(final CacheKey key, final String tenantId, final TaskResource task, final long loadEpoch) {
+        if (isInvalidatedSince(key.getGuid(), loadEpoch)) {
+            return;
+        }
+        final CachedTask cached = new CachedTask(tenantId, task, System.nanoTime() + ttlNanos);
+        entries.put(key, cached);
+        if (isInvalidatedSince(key.getGuid(), loadEpoch)) {
+            entries.remove(key, cached);
+        }
+    }
+
+    private boolean isInvalidatedSince(final UUID guid, final long loadEpoch) {
+        final Tombstone tombstone = tombstones.get(guid);
+        return tombstone != null && tombstone.getEpoch() > loadEpoch;
+    }
+
+    private void cleanUp() {
+        final long now = System.nanoTime();
+        entries.values().removeIf(cached -> cached.getExpiresAt() - now <= 0);
+        tombstones.values().removeIf(tombstone -> now - tombstone.getCreatedAt() > ttlNanos);
+    }
+
+    @Value
+    private static class CacheKey {
+        UUID guid;
+        Projection projection;
+    }
+
+    @Value
+    private static class CachedTask {
+        String tenantId;
+        TaskResource task;
+        long expiresAt;
+    }
+
+    @Value
+    private static class Tombstone {
+        long epoch;
+        long createdAt;
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.config;
+
+import io.jrb.labs.tasksms.cache.CacheInvalidationTransport;
+import io.jrb.labs.tasksms.cache.HistoryInvalidationPoller;
+import io.jrb.labs.tasksms.cache.LocalCacheInvalidationTransport;
+import io.jrb.labs.tasksms.cache.NearCacheTaskService;
+import io.jrb.labs.tasksms.repository.HistoryRepository;
+import io.jrb.labs.tasksms.service.TaskService;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnExpression("${tasks.cache.enabled:false} and '${tasks.storage.engine:r2dbc}' == 'r2dbc'")
+public class CacheJavaConfig {
+
+    @Bean
+    public CacheInvalidationTransport cacheInvalidationTransport() {
+        return new LocalCacheInvalidationTransport();
+    }
+
+    @Bean
+    public HistoryInvalidationPoller historyInvalidationPoller(
+            final HistoryRepository historyRepository,
+            final CacheInvalidationTransport cacheInvalidationTransport,
+            final ShardRouter shardRouter,
+            @Value("${tasks.cache.poll-interval:1s}") final Duration pollInterval,
+            @Value("${tasks.cache.poll-settle-delay:5s}") final Duration pollSettleDelay,
+            @Value("${tasks.cache.poll-batch-size:1000}") final int pollBatchSize
+    ) {
+        return new HistoryInvalidationPoller(historyRepository, cacheInvalidationTransport, shardRouter,
+                pollInterval, pollSettleDelay, pollBatchSize);
+    }
+
+    @Bean
+    @Primary
+    public NearCacheTaskService nearCacheTaskService(
+            @Qualifier("taskServiceImpl") final TaskService taskService,
+            final CacheInvalidationTransport cacheInvalidationTransport,
+            final MeterRegistry meterRegistry,
+            @Value("${tasks.cache.ttl:30s}") final Duration ttl,
+            @Value("${tasks.cache.max-size:10000}") final int maxSize
+    ) {
+        return new NearCacheTaskService(taskService, cacheInvalidationTransport, meterRegistry, ttl, maxSize);
+    }
+
+}
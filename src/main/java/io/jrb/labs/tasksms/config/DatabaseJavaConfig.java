@@ -28,12 +28,24 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.common.collect.ImmutableList;
 import io.jrb.labs.common.h2.H2ConsoleServer;
+import io.jrb.labs.tasksms.mapping.HistoryRowConverter;
+import io.jrb.labs.tasksms.mapping.LookupValueRowConverter;
+import io.jrb.labs.tasksms.mapping.OutboxEventRowConverter;
+import io.jrb.labs.tasksms.mapping.TaskRowConverter;
 import io.jrb.labs.tasksms.service.TaskService;
+import io.jrb.labs.tasksms.shard.ReplicaRoutingConnectionFactory;
+import io.jrb.labs.tasksms.shard.ReplicaSelection;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import io.jrb.labs.tasksms.shard.ShardRoutingConnectionFactory;
 import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import io.r2dbc.h2.H2ConnectionFactory;
 import io.r2dbc.spi.ConnectionFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
@@ -44,20 +56,76 @@ import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
 import org.springframework.r2dbc.connection.init.CompositeDatabasePopulator;
 import org.springframework.r2dbc.connection.init.ConnectionFactoryInitializer;
 import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Configuration
 @EnableR2dbcRepositories
 public class DatabaseJavaConfig extends AbstractR2dbcConfiguration {
 
+    @Value("${tasks.storage.r2dbc.shards:mem:testdb;DB_CLOSE_DELAY=-1;}")
+    private String[] shardUrls;
+
+    @Value("${tasks.storage.r2dbc.replicas:}")
+    private String[] replicaUrls;
+
+    @Value("${tasks.storage.r2dbc.replica-selection:LEAST_PENDING}")
+    private ReplicaSelection replicaSelection;
+
     @Bean
     @Override
-    public H2ConnectionFactory connectionFactory() {
-        return new H2ConnectionFactory(
-                H2ConnectionConfiguration.builder()
-                        .url("mem:testdb;DB_CLOSE_DELAY=-1;")
-                        .username("sa")
-                        .build()
-        );
+    public ShardRoutingConnectionFactory connectionFactory() {
+        final List<ReplicaRoutingConnectionFactory> shards = new ArrayList<>(shardUrls.length);
+        for (int shard = 0; shard < shardUrls.length; shard++) {
+            final List<ConnectionFactory> replicas = (shard < replicaUrls.length)
+                    ? Arrays.stream(replicaUrls[shard].split("\\|"))
+                            .filter(url -> !url.isBlank())
+                            .map(this::h2ConnectionFactory)
+                            .collect(Collectors.toList())
+                    : Collections.emptyList();
+            shards.add(new ReplicaRoutingConnectionFactory(
+                    h2ConnectionFactory(shardUrls[shard]), replicas, replicaSelection));
+        }
+        return new ShardRoutingConnectionFactory(shards);
+    }
+
+    @Bean
+    public MeterBinder replicaMetrics(final ShardRoutingConnectionFactory connectionFactory) {
+        return registry -> {
+            final List<ReplicaRoutingConnectionFactory> shards = connectionFactory.getShards();
+            for (int shard = 0; shard < shards.size(); shard++) {
+                final ReplicaRoutingConnectionFactory factory = shards.get(shard);
+                final String shardTag = String.valueOf(shard);
+                FunctionCounter.builder("tasks.storage.connections", factory,
+                        ReplicaRoutingConnectionFactory::getPrimaryAcquired)
+                        .tags("shard", shardTag, "role", "primary", "replica", "none")
+                        .register(registry);
+                for (int replica = 0; replica < factory.getReplicaCount(); replica++) {
+                    final int index = replica;
+                    final String replicaTag = String.valueOf(replica);
+                    FunctionCounter.builder("tasks.storage.connections", factory, f -> f.getAcquired(index))
+                            .tags("shard", shardTag, "role", "replica", "replica", replicaTag)
+                            .register(registry);
+                    Gauge.builder("tasks.storage.replica.pending", factory, f -> f.getPending(index))
+                            .tags("shard", shardTag, "replica", replicaTag)
+                            .register(registry);
+                }
+            }
+        };
+    }
+
+    @Bean
+    public ShardRouter shardRouter(
+            final ShardRoutingConnectionFactory connectionFactory,
+            final TransactionalOperator transactionalOperator
+    ) {
+        return new ShardRouter(connectionFactory.getShards().size(), transactionalOperator);
     }
 
     @Bean
@@ -68,28 +136,45 @@ public class DatabaseJavaConfig extends AbstractR2dbcConfiguration {
                 .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
                 .findAndRegisterModules();
         return new R2dbcCustomConversions(getStoreConversions(), ImmutableList.builder()
+                .add(new TaskRowConverter())
+                .add(new LookupValueRowConverter())
+                .add(new HistoryRowConverter())
+                .add(new OutboxEventRowConverter())
                 .build());
     }
 
     @Bean
     public ConnectionFactoryInitializer schemaInitializer(
-            @Qualifier("connectionFactory") final ConnectionFactory connectionFactory
+            @Qualifier("connectionFactory") final ShardRoutingConnectionFactory connectionFactory
     ) {
         final ConnectionFactoryInitializer initializer = new ConnectionFactoryInitializer();
-        initializer.setConnectionFactory(connectionFactory);
+        initializer.setConnectionFactory(connectionFactory.getShards().get(0).getPrimary());
 
         final CompositeDatabasePopulator populator = new CompositeDatabasePopulator();
         populator.addPopulators(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")));
-        initializer.setDatabasePopulator(populator);
+        initializer.setDatabasePopulator(connection -> Flux.fromIterable(connectionFactory.getShards())
+                .map(ReplicaRoutingConnectionFactory::getPrimary)
+                .concatMap(populator::populate)
+                .then());
 
         return initializer;
     }
 
     @Bean
+    @ConditionalOnProperty(name = "tasks.storage.engine", havingValue = "r2dbc", matchIfMissing = true)
     public DemoInitializer demoInitializer(final TaskService taskService) {
         return new DemoInitializer(taskService);
     }
 
+    private H2ConnectionFactory h2ConnectionFactory(final String url) {
+        return new H2ConnectionFactory(
+                H2ConnectionConfiguration.builder()
+                        .url(url.trim())
+                        .username("sa")
+                        .build()
+        );
+    }
+
     @Bean
     @Profile("local")
     public H2ConsoleServer h2ConsoleServer(@Value("${h2.console.port}") final int consolePort) {
@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.config;
+
+import io.jrb.labs.tasksms.health.DatabaseHealthIndicator;
+import io.jrb.labs.tasksms.health.DatabaseHealthProbe;
+import io.jrb.labs.tasksms.repository.OutboxEventRepository;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import io.jrb.labs.tasksms.shard.ShardRoutingConnectionFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "tasks.storage.engine", havingValue = "r2dbc", matchIfMissing = true)
+public class HealthJavaConfig {
+
+    @Bean
+    public DatabaseHealthProbe databaseHealthProbe(
+            final DatabaseClient databaseClient,
+            final OutboxEventRepository outboxEventRepository,
+            final ShardRouter shardRouter,
+            final ShardRoutingConnectionFactory connectionFactory,
+            final ApplicationEventPublisher eventPublisher,
+            final MeterRegistry meterRegistry,
+            @Value("${tasks.health.database.probe-interval:5s}") final Duration interval,
+            @Value("${tasks.health.database.probe-timeout:2s}") final Duration timeout,
+            @Value("${tasks.health.database.max-latency:250ms}") final Duration maxLatency,
+            @Value("${tasks.health.database.connection-capacity:64}") final int connectionCapacity,
+            @Value("${tasks.health.database.max-saturation:0.9}") final double maxSaturation,
+            @Value("${tasks.health.database.max-outbox-backlog:10000}") final long maxOutboxBacklog,
+            @Value("${tasks.health.database.overload-samples:3}") final int overloadSamples,
+            @Value("${tasks.health.database.recovery-samples:2}") final int recoverySamples
+    ) {
+        return new DatabaseHealthProbe(databaseClient, outboxEventRepository, shardRouter, connectionFactory,
+                eventPublisher, meterRegistry, interval, timeout, maxLatency, connectionCapacity, maxSaturation,
+                maxOutboxBacklog, overloadSamples, recoverySamples);
+    }
+
+    @Bean
+    public DatabaseHealthIndicator databaseHealthIndicator(
+            final DatabaseHealthProbe databaseHealthProbe,
+            @Value("${tasks.health.database.down-after-errors:3}") final int downAfterErrors
+    ) {
+        return new DatabaseHealthIndicator(databaseHealthProbe, downAfterErrors);
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jrb.labs.tasksms.idempotency.IdempotencyKeyStore;
+import io.jrb.labs.tasksms.idempotency.IdempotentRequestCoordinator;
+import io.jrb.labs.tasksms.idempotency.InMemoryIdempotencyKeyStore;
+import io.jrb.labs.tasksms.idempotency.R2dbcIdempotencyKeyStore;
+import io.jrb.labs.tasksms.repository.IdempotencyKeyRepository;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class IdempotencyJavaConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "tasks.idempotency.store", havingValue = "memory", matchIfMissing = true)
+    public InMemoryIdempotencyKeyStore inMemoryIdempotencyKeyStore(
+            @Value("${tasks.idempotency.max-keys:100000}") final int maxKeys
+    ) {
+        return new InMemoryIdempotencyKeyStore(maxKeys);
+    }
+
+    @Bean
+    public IdempotentRequestCoordinator idempotentRequestCoordinator(
+            final IdempotencyKeyStore idempotencyKeyStore,
+            final ObjectMapper objectMapper,
+            final MeterRegistry meterRegistry,
+            @Value("${tasks.idempotency.ttl:24h}") final Duration ttl,
+            @Value("${tasks.idempotency.pending-ttl:5m}") final Duration pendingTtl
+    ) {
+        return new IdempotentRequestCoordinator(idempotencyKeyStore, objectMapper, meterRegistry, ttl, pendingTtl);
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "tasks.storage.engine", havingValue = "r2dbc", matchIfMissing = true)
+    public static class R2dbcIdempotencyJavaConfig {
+
+        @Bean
+        @ConditionalOnProperty(name = "tasks.idempotency.store", havingValue = "r2dbc")
+        public R2dbcIdempotencyKeyStore r2dbcIdempotencyKeyStore(
+                final IdempotencyKeyRepository idempotencyKeyRepository,
+                final ShardRouter shardRouter,
+                @Value("${tasks.idempotency.purge-interval:10m}") final Duration purgeInterval
+        ) {
+            return new R2dbcIdempotencyKeyStore(idempotencyKeyRepository, shardRouter, purgeInterval);
+        }
+
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jrb.labs.tasksms.journal.JournalSnapshotter;
+import io.jrb.labs.tasksms.journal.JournaledTaskStore;
+import io.jrb.labs.tasksms.journal.TaskJournal;
+import io.jrb.labs.tasksms.journal.TaskSnapshotStore;
+import io.jrb.labs.tasksms.service.JournaledTaskServiceImpl;
+import io.jrb.labs.tasksms.service.TaskService;
+import io.jrb.labs.tasksms.tenant.TenantQuotas;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "tasks.storage.engine", havingValue = "journal")
+public class JournalJavaConfig {
+
+    @Bean
+    public JournaledTaskStore journaledTaskStore(
+            final ObjectMapper objectMapper,
+            @Value("${tasks.storage.journal.directory:./data}") final String directory,
+            @Value("${tasks.storage.journal.max-batch-size:1024}") final int maxBatchSize
+    ) throws IOException {
+        final Path path = Paths.get(directory);
+        final JournaledTaskStore taskStore = new JournaledTaskStore(
+                new TaskJournal(path, objectMapper, maxBatchSize),
+                new TaskSnapshotStore(path.resolve("tasks.snapshot"), objectMapper)
+        );
+        taskStore.recover();
+        return taskStore;
+    }
+
+    @Bean
+    public JournalSnapshotter journalSnapshotter(
+            final JournaledTaskStore journaledTaskStore,
+            @Value("${tasks.storage.journal.snapshot-interval:5m}") final Duration snapshotInterval
+    ) {
+        return new JournalSnapshotter(journaledTaskStore, snapshotInterval);
+    }
+
+    @Bean
+    public TaskService taskService(
+            final JournaledTaskStore journaledTaskStore,
+            final TenantQuotas tenantQuotas,
+            final ObjectMapper objectMapper
+    ) {
+        return new JournaledTaskServiceImpl(journaledTaskStore, tenantQuotas, objectMapper);
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jrb.labs.tasksms.outbox.FileTaskEventPublisher;
+import io.jrb.labs.tasksms.outbox.InMemoryTaskEventPublisher;
+import io.jrb.labs.tasksms.outbox.OutboxRelay;
+import io.jrb.labs.tasksms.outbox.TaskEventPublisher;
+import io.jrb.labs.tasksms.repository.OutboxEventRepository;
+import io.jrb.labs.tasksms.repository.SchedulerLeaseRepository;
+import io.jrb.labs.tasksms.schedule.LeaderLease;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "tasks.storage.engine", havingValue = "r2dbc", matchIfMissing = true)
+public class OutboxJavaConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "tasks.outbox.publisher", havingValue = "memory", matchIfMissing = true)
+    public InMemoryTaskEventPublisher inMemoryTaskEventPublisher(
+            @Value("${tasks.outbox.memory.dedup-capacity:100000}") final int dedupCapacity
+    ) {
+        return new InMemoryTaskEventPublisher(dedupCapacity);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "tasks.outbox.publisher", havingValue = "file")
+    public FileTaskEventPublisher fileTaskEventPublisher(
+            final ObjectMapper objectMapper,
+            @Value("${tasks.outbox.file.path:./data/task-events.ndjson}") final String path
+    ) throws IOException {
+        return new FileTaskEventPublisher(Paths.get(path), objectMapper);
+    }
+
+    @Bean
+    public OutboxRelay outboxRelay(
+            final OutboxEventRepository outboxEventRepository,
+            final TaskEventPublisher taskEventPublisher,
+            final SchedulerLeaseRepository schedulerLeaseRepository,
+            final ShardRouter shardRouter,
+            final MeterRegistry meterRegistry,
+            @Value("${tasks.outbox.poll-interval:1s}") final Duration pollInterval,
+            @Value("${tasks.outbox.batch-size:500}") final int batchSize,
+            @Value("${tasks.outbox.lease-duration:15s}") final Duration leaseDuration
+    ) {
+        final LeaderLease lease =
+                new LeaderLease(schedulerLeaseRepository, shardRouter, OutboxRelay.LEASE_NAME, leaseDuration);
+        return new OutboxRelay(
+                outboxEventRepository, taskEventPublisher, shardRouter, lease, meterRegistry, pollInterval, batchSize);
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.config;
+
+import io.jrb.labs.tasksms.repository.SchedulerLeaseRepository;
+import io.jrb.labs.tasksms.repository.TaskRepository;
+import io.jrb.labs.tasksms.schedule.TaskScheduler;
+import io.jrb.labs.tasksms.service.EntityHistoryService;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnExpression("${tasks.scheduler.enabled:true} and '${tasks.storage.engine:r2dbc}' == 'r2dbc'")
+public class SchedulerJavaConfig {
+
+    @Bean
+    public TaskScheduler taskScheduler(
+            final TaskRepository taskRepository,
+            final EntityHistoryService entityHistoryService,
+            final SchedulerLeaseRepository schedulerLeaseRepository,
+            final ShardRouter shardRouter,
+            final MeterRegistry meterRegistry,
+            @Value("${tasks.scheduler.tick:100ms}") final Duration tick,
+            @Value("${tasks.scheduler.wheel-size:512}") final int wheelSize,
+            @Value("${tasks.scheduler.horizon:5m}") final Duration horizon,
+            @Value("${tasks.scheduler.scan-interval:30s}") final Duration scanInterval,
+            @Value("${tasks.scheduler.delta-interval:1s}") final Duration deltaInterval,
+            @Value("${tasks.scheduler.lease-duration:15s}") final Duration leaseDuration,
+            @Value("${tasks.scheduler.chunk-size:1000}") final int chunkSize,
+            @Value("${tasks.scheduler.fire-concurrency:16}") final int fireConcurrency
+    ) {
+        return new TaskScheduler(taskRepository, entityHistoryService, schedulerLeaseRepository, shardRouter,
+                meterRegistry, tick, wheelSize, horizon, scanInterval, deltaInterval, leaseDuration, chunkSize,
+                fireConcurrency);
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.config;
+
+import io.jrb.labs.tasksms.settings.ConfigRefresher;
+import io.jrb.labs.tasksms.settings.ConfigSnapshotHolder;
+import io.jrb.labs.tasksms.settings.TimedContextRefresher;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.cloud.context.scope.refresh.RefreshScope;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class SettingsJavaConfig {
+
+    @Bean
+    public ConfigSnapshotHolder configSnapshotHolder(
+            final ConfigurableEnvironment environment,
+            final MeterRegistry meterRegistry,
+            @Value("${tasks.config.snapshot-keys:message}") final List<String> keys,
+            @Value("${tasks.config.cache-file:./data/config-cache.properties}") final Path cacheFile
+    ) {
+        return new ConfigSnapshotHolder(environment, keys, cacheFile, meterRegistry);
+    }
+
+    @Bean
+    public TimedContextRefresher contextRefresher(
+            final ConfigurableApplicationContext context,
+            final RefreshScope refreshScope,
+            final MeterRegistry meterRegistry
+    ) {
+        return new TimedContextRefresher(context, refreshScope, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "tasks.config.auto-refresh", havingValue = "true")
+    public ConfigRefresher configRefresher(
+            final ContextRefresher contextRefresher,
+            @Value("${tasks.config.refresh-interval:5m}") final Duration interval
+    ) {
+        return new ConfigRefresher(contextRefresher, interval);
+    }
+
+}
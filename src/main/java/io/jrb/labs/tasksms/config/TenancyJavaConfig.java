@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.config;
+
+import io.jrb.labs.tasksms.journal.JournaledTaskStore;
+import io.jrb.labs.tasksms.repository.TaskRepository;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import io.jrb.labs.tasksms.tenant.TenantQuotas;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Configuration
+public class TenancyJavaConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "tasks.storage.engine", havingValue = "r2dbc", matchIfMissing = true)
+    public TenantQuotas tenantQuotas(
+            final TaskRepository taskRepository,
+            final ShardRouter shardRouter,
+            final MeterRegistry meterRegistry,
+            @Value("${tasks.tenancy.quota.requests-per-second:0}") final int requestsPerSecond,
+            @Value("${tasks.tenancy.quota.max-tasks:0}") final long maxTasks,
+            @Value("${tasks.tenancy.quota.recount-interval:5m}") final Duration recountInterval,
+            @Value("${tasks.tenancy.quota.max-tracked-tenants:10000}") final int maxTrackedTenants,
+            @Value("${tasks.tenancy.tenants:}") final String[] tenants
+    ) {
+        return new TenantQuotas(requestsPerSecond, maxTasks, recountInterval, maxTrackedTenants, configured(tenants),
+                tenantId -> shardRouter.readOnly(shardRouter.scatter(shard -> taskRepository.countByTenantId(tenantId)))
+                        .reduce(0L, Long::sum),
+                meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "tasks.storage.engine", havingValue = "journal")
+    public TenantQuotas journalTenantQuotas(
+            final JournaledTaskStore journaledTaskStore,
+            final MeterRegistry meterRegistry,
+            @Value("${tasks.tenancy.quota.requests-per-second:0}") final int requestsPerSecond,
+            @Value("${tasks.tenancy.quota.max-tasks:0}") final long maxTasks,
+            @Value("${tasks.tenancy.quota.recount-interval:5m}") final Duration recountInterval,
+            @Value("${tasks.tenancy.quota.max-tracked-tenants:10000}") final int maxTrackedTenants,
+            @Value("${tasks.tenancy.tenants:}") final String[] tenants
+    ) {
+        return new TenantQuotas(requestsPerSecond, maxTasks, recountInterval, maxTrackedTenants, configured(tenants),
+                tenantId -> Mono.fromSupplier(() -> journaledTaskStore.findAll()
+                        .filter(stored -> stored.isOwnedBy(tenantId))
+                        .count()),
+                meterRegistry);
+    }
+
+    private static List<String> configured(final String[] tenants) {
+        return Arrays.stream(tenants)
+                .map(String::trim)
+                .filter(tenant -> !tenant.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+}
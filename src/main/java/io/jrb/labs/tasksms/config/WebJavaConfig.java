@@ -24,15 +24,128 @@
 package io.jrb.labs.tasksms.config;
 
 import io.jrb.labs.common.rest.GlobalErrorHandler;
+import io.jrb.labs.tasksms.metrics.OperationTimingHook;
+import io.jrb.labs.tasksms.web.ConnectionLimiter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.regex.Pattern;
 
 @Configuration
+@Slf4j
 public class WebJavaConfig {
 
+    private static final Pattern GUID_SEGMENT =
+            Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
     @Bean
     public GlobalErrorHandler globalErrorHandler() {
         return new GlobalErrorHandler();
     }
 
+    @Bean(destroyMethod = "dispose")
+    public LoopResources httpLoopResources(
+            @Value("${tasks.web.event-loop.threads:0}") final int threads,
+            @Value("${tasks.web.event-loop.select-threads:0}") final int selectThreads
+    ) {
+        final int workerThreads = (threads > 0) ? threads : LoopResources.DEFAULT_IO_WORKER_COUNT;
+        log.info("Serving HTTP on {} event-loop threads", workerThreads);
+        return (selectThreads > 0)
+                ? LoopResources.create("tasks-http", selectThreads, workerThreads, true)
+                : LoopResources.create("tasks-http", workerThreads, true);
+    }
+
+    @Bean
+    public ConnectionLimiter connectionLimiter(
+            @Value("${tasks.web.max-connections:0}") final int maxConnections,
+            final MeterRegistry meterRegistry
+    ) {
+        return new ConnectionLimiter(maxConnections, meterRegistry);
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<NettyReactiveWebServerFactory> nettyServerCustomizer(
+            final LoopResources httpLoopResources,
+            final ConnectionLimiter connectionLimiter,
+            @Value("${tasks.web.idle-timeout:60s}") final Duration idleTimeout,
+            @Value("${tasks.web.http2:false}") final boolean http2,
+            @Value("${tasks.web.compression.enabled:true}") final boolean compressionEnabled,
+            @Value("${tasks.web.compression.min-response-size:2KB}") final DataSize compressionMinSize,
+            @Value("${tasks.web.compression.mime-types:}") final String[] compressionMimeTypes,
+            @Value("${tasks.web.metrics:true}") final boolean metrics
+    ) {
+        return factory -> {
+            if (compressionEnabled) {
+                final Compression compression = new Compression();
+                compression.setEnabled(true);
+                compression.setMinResponseSize(compressionMinSize);
+                if (compressionMimeTypes.length > 0) {
+                    compression.setMimeTypes(compressionMimeTypes);
+                }
+                factory.setCompression(compression);
+            }
+            factory.addServerCustomizers(server -> {
+                server = server.runOn(httpLoopResources)
+                        .doOnConnection(connectionLimiter);
+                if (http2) {
+                    log.info("Serving h2c; idle timeout of {} is not applied to cleartext HTTP/2", idleTimeout);
+                    server = server.protocol(HttpProtocol.HTTP11, HttpProtocol.H2C);
+                } else {
+                    server = server.idleTimeout(idleTimeout);
+                }
+                if (metrics) {
+                    server = server.metrics(true, uri -> GUID_SEGMENT.matcher(uri).replaceAll("{guid}"));
+                }
+                return server;
+            });
+        };
+    }
+
+    @Bean
+    public MeterBinder eventLoopMetrics(final LoopResources httpLoopResources) {
+        return registry -> {
+            int index = 0;
+            for (final EventExecutor executor : httpLoopResources.onServer(true)) {
+                if (executor instanceof SingleThreadEventExecutor) {
+                    Gauge.builder("tasks.web.eventloop.pending", (SingleThreadEventExecutor) executor,
+                            SingleThreadEventExecutor::pendingTasks)
+                            .tags("loop", String.valueOf(index))
+                            .register(registry);
+                }
+                index++;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "tasks.reactor.operation-timing", havingValue = "true")
+    public OperationTimingHook operationTimingHook(
+            final MeterRegistry meterRegistry,
+            @Value("${tasks.reactor.operation-timing-prefix:tasks.}") final String prefix
+    ) {
+        return new OperationTimingHook(meterRegistry, prefix);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "tasks.reactor.scheduler-metrics", havingValue = "true")
+    public MeterBinder schedulerMetrics() {
+        return registry -> Schedulers.enableMetrics();
+    }
+
 }
@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.health;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import reactor.core.publisher.Mono;
+
+public class DatabaseHealthIndicator implements ReactiveHealthIndicator {
+
+    private final DatabaseHealthProbe probe;
+    private final int downAfterErrors;
+
+    public DatabaseHealthIndicator(final DatabaseHealthProbe probe, final int downAfterErrors) {
+        this.probe = probe;
+        this.downAfterErrors = downAfterErrors;
+    }
+
+    @Override
+    public Mono<Health> health() {
+        return Mono.fromSupplier(() -> {
+            final DatabaseHealthSample sample = probe.getLatest();
+            if (sample == null) {
+                return Health.unknown().withDetail("reason", "No database probe has completed yet").build();
+            }
+            final int consecutiveErrors = probe.getConsecutiveErrors();
+            final Health.Builder builder = (consecutiveErrors >= downAfterErrors) ? Health.down()
+                    : probe.isRefusingTraffic() ? Health.outOfService() : Health.up();
+            if (sample.getError() != null) {
+                builder.withDetail("error", sample.getError());
+            }
+            return builder
+                    .withDetail("consecutiveErrors", consecutiveErrors)
+                    .withDetail("sampledOn", sample.getSampledOn())
+                    .withDetail("latencyMillis", sample.getLatency().toMillis())
+                    .withDetail("connectionsInUse", sample.getConnectionsInUse())
+                    .withDetail("saturation", sample.getSaturation())
+                    .withDetail("outboxBacklog", sample.getOutboxBacklog())
+                    .withDetail("overloaded", sample.isOverloaded())
+                    .build();
+        });
+    }
+
+}
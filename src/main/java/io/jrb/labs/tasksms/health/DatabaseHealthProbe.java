@@ -0,0 +1,207 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.health;
+
+import io.jrb.labs.tasksms.repository.OutboxEventRepository;
+import io.jrb.labs.tasksms.schedule.PeriodicJob;
+import io.jrb.labs.tasksms.schedule.PeriodicJobSupport;
+import io.jrb.labs.tasksms.shard.ReplicaRoutingConnectionFactory;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import io.jrb.labs.tasksms.shard.ShardRoutingConnectionFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+@Slf4j
+public class DatabaseHealthProbe extends PeriodicJobSupport {
+
+    private final DatabaseClient databaseClient;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ShardRouter shardRouter;
+    private final ShardRoutingConnectionFactory connectionFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration timeout;
+    private final Duration maxLatency;
+    private final int connectionCapacity;
+    private final double maxSaturation;
+    private final long maxOutboxBacklog;
+    private final int overloadSamples;
+    private final int recoverySamples;
+
+    private volatile DatabaseHealthSample latest;
+    private volatile boolean refusingTraffic;
+    private volatile int consecutiveErrors;
+    private int overloadedStreak;
+    private int healthyStreak;
+
+    public DatabaseHealthProbe(
+            final DatabaseClient databaseClient,
+            final OutboxEventRepository outboxEventRepository,
+            final ShardRouter shardRouter,
+            final ShardRoutingConnectionFactory connectionFactory,
+            final ApplicationEventPublisher eventPublisher,
+            final MeterRegistry meterRegistry,
+            final Duration interval,
+            final Duration timeout,
+            final Duration maxLatency,
+            final int connectionCapacity,
+            final double maxSaturation,
+            final long maxOutboxBacklog,
+            final int overloadSamples,
+            final int recoverySamples
+    ) {
+        this.databaseClient = databaseClient;
+        this.outboxEventRepository = outboxEventRepository;
+        this.shardRouter = shardRouter;
+        this.connectionFactory = connectionFactory;
+        this.eventPublisher = eventPublisher;
+        this.timeout = timeout;
+        this.maxLatency = maxLatency;
+        this.connectionCapacity = connectionCapacity;
+        this.maxSaturation = maxSaturation;
+        this.maxOutboxBacklog = maxOutboxBacklog;
+        this.overloadSamples = overloadSamples;
+        this.recoverySamples = recoverySamples;
+        TimeGauge.builder("tasks.health.database.latency", this,
+                TimeUnit.MILLISECONDS, probe -> probe.latestValue(sample -> sample.getLatency().toMillis()))
+                .register(meterRegistry);
+        Gauge.builder("tasks.health.database.saturation", this,
+                probe -> probe.latestValue(DatabaseHealthSample::getSaturation))
+                .register(meterRegistry);
+        Gauge.builder("tasks.health.database.outbox-backlog", this,
+                probe -> probe.latestValue(DatabaseHealthSample::getOutboxBacklog))
+                .register(meterRegistry);
+        Gauge.builder("tasks.health.database.refusing-traffic", this, probe -> probe.refusingTraffic ? 1 : 0)
+                .register(meterRegistry);
+        register(PeriodicJob.every(interval, "probe database health", () -> sample().doOnNext(this::evaluate))
+                .startingAfter(Duration.ZERO));
+    }
+
+    public DatabaseHealthSample getLatest() {
+        return latest;
+    }
+
+    public boolean isRefusingTraffic() {
+        return refusingTraffic;
+    }
+
+    public int getConsecutiveErrors() {
+        return consecutiveErrors;
+    }
+
+    @Override
+    public void onApplicationEvent(final ApplicationReadyEvent event) {
+        log.info("Probing database health (max latency {}, max saturation {} of {} connections,"
+                + " max outbox backlog {})", maxLatency, maxSaturation, connectionCapacity, maxOutboxBacklog);
+        super.onApplicationEvent(event);
+    }
+
+    private Mono<DatabaseHealthSample> sample() {
+        final int inUse = connectionFactory.getShards().stream()
+                .mapToInt(ReplicaRoutingConnectionFactory::getInUse)
+                .max()
+                .orElse(0);
+        final DatabaseHealthSample.DatabaseHealthSampleBuilder builder = DatabaseHealthSample.builder()
+                .sampledOn(Instant.now())
+                .connectionsInUse(inUse)
+                .saturation((double) inUse / connectionCapacity);
+        return Flux.fromIterable(shardRouter.shards())
+                .concatMap(shard -> shardRouter.onShard(shard, measureLatency()
+                        .zipWith(outboxEventRepository.count())))
+                .collectList()
+                .timeout(timeout)
+                .map(samples -> builder
+                        .latency(samples.stream().map(Tuple2::getT1).max(Duration::compareTo).orElse(Duration.ZERO))
+                        .outboxBacklog(samples.stream().mapToLong(Tuple2::getT2).sum())
+                        .build())
+                .onErrorResume(e -> Mono.just(builder
+                        .latency(timeout)
+                        .error(e.getClass().getSimpleName() + ": " + e.getMessage())
+                        .build()))
+                .map(sample -> sample.toBuilder().overloaded(isOverloaded(sample)).build());
+    }
+
+    private Mono<Duration> measureLatency() {
+        return Mono.defer(() -> {
+            final long start = System.nanoTime();
+            return databaseClient.sql("select 1")
+                    .map(row -> 1)
+                    .one()
+                    .map(one -> Duration.ofNanos(System.nanoTime() - start));
+        });
+    }
+
+    private boolean isOverloaded(final DatabaseHealthSample sample) {
+        return sample.getError() != null
+                || sample.getLatency().compareTo(maxLatency) > 0
+                || sample.getSaturation() > maxSaturation
+                || sample.getOutboxBacklog() > maxOutboxBacklog;
+    }
+
+    void evaluate(final DatabaseHealthSample sample) {
+        latest = sample;
+        consecutiveErrors = (sample.getError() != null) ? consecutiveErrors + 1 : 0;
+        if (sample.isOverloaded()) {
+            healthyStreak = 0;
+            overloadedStreak++;
+            if (!refusingTraffic && overloadedStreak >= overloadSamples) {
+                log.warn("Database overloaded for {} samples, refusing traffic: {}", overloadedStreak, sample);
+                changeReadiness(true);
+            }
+        } else {
+            overloadedStreak = 0;
+            healthyStreak++;
+            if (refusingTraffic && healthyStreak >= recoverySamples) {
+                log.info("Database recovered for {} samples, accepting traffic: {}", healthyStreak, sample);
+                changeReadiness(false);
+            }
+        }
+    }
+
+    private void changeReadiness(final boolean refuse) {
+        refusingTraffic = refuse;
+        AvailabilityChangeEvent.publish(eventPublisher, this,
+                refuse ? ReadinessState.REFUSING_TRAFFIC : ReadinessState.ACCEPTING_TRAFFIC);
+    }
+
+    private double latestValue(final ToDoubleFunction<DatabaseHealthSample> value) {
+        final DatabaseHealthSample sample = latest;
+        return (sample != null) ? value.applyAsDouble(sample) : Double.NaN;
+    }
+
+}
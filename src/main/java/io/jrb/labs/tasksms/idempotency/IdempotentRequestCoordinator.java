@@ -0,0 +1,179 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+@Slf4j
+public class IdempotentRequestCoordinator {
+
+    public static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyKeyStore store;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration pendingTtl;
+    private final ConcurrentMap<String, InFlightRequest> inFlight;
+    private final Counter executedCounter;
+    private final Counter replayedCounter;
+    private final Counter joinedCounter;
+    private final Counter rejectedCounter;
+
+    public IdempotentRequestCoordinator(
+            final IdempotencyKeyStore store,
+            final ObjectMapper objectMapper,
+            final MeterRegistry meterRegistry,
+            final Duration ttl,
+            final Duration pendingTtl
+    ) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.pendingTtl = pendingTtl;
+        this.inFlight = new ConcurrentHashMap<>();
+        this.executedCounter = meterRegistry.counter("tasks.idempotency.requests", "result", "executed");
+        this.replayedCounter = meterRegistry.counter("tasks.idempotency.requests", "result", "replayed");
+        this.joinedCounter = meterRegistry.counter("tasks.idempotency.requests", "result", "joined");
+        this.rejectedCounter = meterRegistry.counter("tasks.idempotency.requests", "result", "rejected");
+    }
+
+    public <T> Mono<T> execute(
+            final String namespace,
+            final String idempotencyKey,
+            final Object request,
+            final Class<T> type,
+            final Supplier<Mono<T>> operation
+    ) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Idempotency key must be 1 to " + MAX_KEY_LENGTH + " characters"));
+        }
+        return Mono.defer(() -> {
+            final String key = digest(namespace + "\n" + idempotencyKey);
+            final String fingerprint = digest(write(request));
+            final boolean[] created = new boolean[1];
+            final InFlightRequest pending = inFlight.computeIfAbsent(key, k -> {
+                created[0] = true;
+                return new InFlightRequest(fingerprint, store.reserve(k, fingerprint, pendingTtl)
+                        .flatMap(reserved -> reserved ? perform(k, operation) : replay(k, fingerprint))
+                        .doFinally(signal -> inFlight.remove(k))
+                        .cache());
+            });
+            if (!created[0]) {
+                if (!pending.getFingerprint().equals(fingerprint)) {
+                    rejectedCounter.increment();
+                    return Mono.error(mismatch());
+                }
+                joinedCounter.increment();
+            }
+            return pending.getResponse().map(json -> read(json, type));
+        });
+    }
+
+    private <T> Mono<String> perform(final String key, final Supplier<Mono<T>> operation) {
+        return Mono.defer(operation)
+                .map(this::write)
+                .onErrorResume(e -> store.release(key).then(Mono.error(e)))
+                .flatMap(json -> store.complete(key, json, ttl).thenReturn(json))
+                .doOnSuccess(json -> executedCounter.increment());
+    }
+
+    private Mono<String> replay(final String key, final String fingerprint) {
+        return store.find(key)
+                .switchIfEmpty(Mono.error(() -> inProgress()))
+                .flatMap(stored -> {
+                    if (!stored.getFingerprint().equals(fingerprint)) {
+                        rejectedCounter.increment();
+                        return Mono.error(mismatch());
+                    }
+                    if (!stored.isCompleted()) {
+                        return Mono.error(inProgress());
+                    }
+                    replayedCounter.increment();
+                    return Mono.just(stored.getResponse());
+                });
+    }
+
+    private static ResponseStatusException mismatch() {
+        return new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                "Idempotency key was already used with a different request body");
+    }
+
+    private static ResponseStatusException inProgress() {
+        return new ResponseStatusException(HttpStatus.CONFLICT,
+                "A request with this idempotency key is still in progress");
+    }
+
+    private static String digest(final String value) {
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (final byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private String write(final Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (final JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize idempotent response", e);
+        }
+    }
+
+    private <T> T read(final String json, final Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (final JsonProcessingException e) {
+            throw new IllegalStateException("Unable to deserialize idempotent response", e);
+        }
+    }
+
+    @Value
+    private static class InFlightRequest {
+        String fingerprint;
+        Mono<String> response;
+    }
+
+}
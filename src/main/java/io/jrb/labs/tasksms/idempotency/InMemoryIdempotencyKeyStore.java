@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.idempotency;
+
+import io.jrb.labs.tasksms.model.IdempotencyRecord;
+import lombok.Value;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class InMemoryIdempotencyKeyStore implements IdempotencyKeyStore {
+
+    private final Map<String, StoredRecord> records;
+
+    public InMemoryIdempotencyKeyStore(final int capacity) {
+        this.records = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, StoredRecord> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Override
+    public Mono<IdempotencyRecord> find(final String key) {
+        return Mono.fromSupplier(() -> {
+            synchronized (records) {
+                final StoredRecord stored = live(key);
+                return (stored != null) ? stored.getRecord() : null;
+            }
+        });
+    }
+
+    @Override
+    public Mono<Boolean> reserve(final String key, final String fingerprint, final Duration ttl) {
+        return Mono.fromSupplier(() -> {
+            synchronized (records) {
+                if (live(key) != null) {
+                    return false;
+                }
+                records.put(key, new StoredRecord(new IdempotencyRecord(fingerprint, null), expiresAt(ttl)));
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public Mono<Void> complete(final String key, final String response, final Duration ttl) {
+        return Mono.fromRunnable(() -> {
+            synchronized (records) {
+                final StoredRecord stored = records.get(key);
+                if (stored != null) {
+                    final String fingerprint = stored.getRecord().getFingerprint();
+                    records.put(key, new StoredRecord(new IdempotencyRecord(fingerprint, response), expiresAt(ttl)));
+                }
+            }
+        });
+    }
+
+    @Override
+    public Mono<Void> release(final String key) {
+        return Mono.fromRunnable(() -> {
+            synchronized (records) {
+                final StoredRecord stored = records.get(key);
+                if (stored != null && !stored.getRecord().isCompleted()) {
+                    records.remove(key);
+                }
+            }
+        });
+    }
+
+    private StoredRecord live(final String key) {
+        final StoredRecord stored = records.get(key);
+        if (stored != null && stored.getExpiresAtNanos() - System.nanoTime() <= 0) {
+            records.remove(key);
+            return null;
+        }
+        return stored;
+    }
+
+    private static long expiresAt(final Duration ttl) {
+        return System.nanoTime() + ttl.toNanos();
+    }
+
+    @Value
+    private static class StoredRecord {
+        IdempotencyRecord record;
+        long expiresAtNanos;
+    }
+
+}
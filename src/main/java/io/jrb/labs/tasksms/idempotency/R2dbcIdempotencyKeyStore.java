@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.idempotency;
+
+import io.jrb.labs.tasksms.model.IdempotencyRecord;
+import io.jrb.labs.tasksms.repository.IdempotencyKeyRepository;
+import io.jrb.labs.tasksms.schedule.PeriodicJob;
+import io.jrb.labs.tasksms.schedule.PeriodicJobSupport;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+@Slf4j
+public class R2dbcIdempotencyKeyStore extends PeriodicJobSupport implements IdempotencyKeyStore {
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ShardRouter shardRouter;
+
+    public R2dbcIdempotencyKeyStore(
+            final IdempotencyKeyRepository idempotencyKeyRepository,
+            final ShardRouter shardRouter,
+            final Duration purgeInterval
+    ) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.shardRouter = shardRouter;
+        register(PeriodicJob.every(purgeInterval, "purge expired idempotency keys", () -> Flux
+                .fromIterable(shardRouter.shards())
+                .concatMap(shard -> shardRouter.onShard(shard, idempotencyKeyRepository.deleteExpired(now())))));
+    }
+
+    @Override
+    public Mono<IdempotencyRecord> find(final String key) {
+        return shardRouter.route(shardKey(key), idempotencyKeyRepository.find(key, now()));
+    }
+
+    @Override
+    public Mono<Boolean> reserve(final String key, final String fingerprint, final Duration ttl) {
+        final LocalDateTime now = now();
+        return shardRouter.route(shardKey(key), idempotencyKeyRepository.deleteExpired(key, now)
+                .then(idempotencyKeyRepository.reserve(key, fingerprint, now.plus(ttl))));
+    }
+
+    @Override
+    public Mono<Void> complete(final String key, final String response, final Duration ttl) {
+        return shardRouter.route(shardKey(key), idempotencyKeyRepository.complete(key, response, now().plus(ttl)));
+    }
+
+    @Override
+    public Mono<Void> release(final String key) {
+        return shardRouter.route(shardKey(key), idempotencyKeyRepository.deletePending(key));
+    }
+
+    private static UUID shardKey(final String key) {
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now(ZoneOffset.UTC);
+    }
+
+}
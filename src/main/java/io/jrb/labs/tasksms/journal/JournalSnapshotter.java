@@ -0,0 +1,50 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.journal;
+
+import io.jrb.labs.tasksms.schedule.PeriodicJob;
+import io.jrb.labs.tasksms.schedule.PeriodicJobSupport;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+@Slf4j
+public class JournalSnapshotter extends PeriodicJobSupport {
+
+    private final JournaledTaskStore taskStore;
+
+    public JournalSnapshotter(final JournaledTaskStore taskStore, final Duration interval) {
+        this.taskStore = taskStore;
+        register(PeriodicJob.every(interval, "snapshot task journal", () -> taskStore.snapshot()
+                .doOnNext(sequence -> log.info("Wrote task snapshot at journal sequence {}", sequence))));
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        super.destroy();
+        taskStore.snapshot().block();
+        taskStore.close();
+    }
+
+}
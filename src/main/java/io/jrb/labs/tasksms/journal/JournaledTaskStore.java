@@ -0,0 +1,255 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.journal;
+
+import io.jrb.labs.tasksms.model.LookupValueType;
+import io.jrb.labs.tasksms.model.TaskStatus;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+@Slf4j
+public class JournaledTaskStore implements Closeable {
+
+    private final TaskJournal journal;
+    private final TaskSnapshotStore snapshotStore;
+    private final Object writeLock;
+    private final ConcurrentSkipListMap<Long, StoredTask> tasksById;
+    private final Map<UUID, StoredTask> tasksByGuid;
+    private final Map<TaskStatus, NavigableSet<Long>> statusIndex;
+    private final Map<LookupValueType, Map<String, Set<UUID>>> lookupIndex;
+    private final Map<UUID, JournalEntry> pending;
+
+    private long sequence;
+    private long appendedSequence;
+    private long lastId;
+
+    public JournaledTaskStore(final TaskJournal journal, final TaskSnapshotStore snapshotStore) {
+        this.journal = journal;
+        this.snapshotStore = snapshotStore;
+        this.writeLock = new Object();
+        this.tasksById = new ConcurrentSkipListMap<>();
+        this.tasksByGuid = new ConcurrentHashMap<>();
+        this.statusIndex = new EnumMap<>(TaskStatus.class);
+        for (final TaskStatus status : TaskStatus.values()) {
+            statusIndex.put(status, new ConcurrentSkipListSet<>());
+        }
+        this.lookupIndex = new EnumMap<>(LookupValueType.class);
+        for (final LookupValueType type : LookupValueType.values()) {
+            lookupIndex.put(type, new ConcurrentHashMap<>());
+        }
+        this.pending = new HashMap<>();
+    }
+
+    public void recover() throws IOException {
+        synchronized (writeLock) {
+            final long snapshotSequence = snapshotStore.read(this::index);
+            sequence = journal.replay(snapshotSequence, this::apply);
+            appendedSequence = sequence;
+            lastId = tasksById.isEmpty() ? 0L : tasksById.lastKey();
+            journal.start(sequence + 1);
+            log.info("Recovered {} tasks from snapshot {} and journal up to {}",
+                    tasksById.size(), snapshotSequence, sequence);
+        }
+    }
+
+    public Optional<StoredTask> findByGuid(final UUID guid) {
+        return Optional.ofNullable(tasksByGuid.get(guid));
+    }
+
+    public Stream<StoredTask> findAll() {
+        return tasksById.values().stream();
+    }
+
+    public Stream<StoredTask> findByStatus(final TaskStatus status, final long afterId) {
+        return statusIndex.get(status).tailSet(afterId, false).stream()
+                .map(tasksById::get)
+                .filter(Objects::nonNull);
+    }
+
+    public Stream<StoredTask> findByLookupValue(final LookupValueType type, final String value) {
+        return lookupIndex.get(type).getOrDefault(value, Collections.emptySet()).stream()
+                .map(tasksByGuid::get)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingLong(StoredTask::getId));
+    }
+
+    public Mono<StoredTask> insert(final String tenantId, final TaskResource task) {
+        return Mono.defer(() -> {
+            synchronized (writeLock) {
+                final StoredTask stored = StoredTask.builder().id(++lastId).tenantId(tenantId).task(task).build();
+                return write(JournalOperation.PUT, stored.getTask().getGuid(), stored)
+                        .thenReturn(stored);
+            }
+        });
+    }
+
+    public Mono<StoredTask> update(final UUID guid, final UnaryOperator<TaskResource> updater) {
+        return Mono.defer(() -> {
+            synchronized (writeLock) {
+                final StoredTask existing = latest(guid);
+                if (existing == null) {
+                    return Mono.empty();
+                }
+                final StoredTask stored = existing.toBuilder().task(updater.apply(existing.getTask())).build();
+                return write(JournalOperation.PUT, guid, stored)
+                        .thenReturn(stored);
+            }
+        });
+    }
+
+    public Mono<StoredTask> delete(final UUID guid) {
+        return Mono.defer(() -> {
+            synchronized (writeLock) {
+                final StoredTask existing = latest(guid);
+                if (existing == null) {
+                    return Mono.empty();
+                }
+                return write(JournalOperation.DELETE, guid, null)
+                        .thenReturn(existing);
+            }
+        });
+    }
+
+    public Mono<Long> snapshot() {
+        return Mono.fromCallable(() -> {
+            final long rotationSequence;
+            final CompletableFuture<Void> rotated;
+            synchronized (writeLock) {
+                rotationSequence = appendedSequence + 1;
+                rotated = journal.rotate(rotationSequence);
+            }
+            rotated.join();
+            final long snapshotSequence;
+            final List<StoredTask> tasks;
+            synchronized (writeLock) {
+                snapshotSequence = sequence;
+                tasks = new ArrayList<>(tasksById.values());
+            }
+            snapshotStore.write(snapshotSequence, tasks);
+            journal.deleteSegmentsBefore(rotationSequence);
+            return snapshotSequence;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+
+    private StoredTask latest(final UUID guid) {
+        final JournalEntry entry = pending.get(guid);
+        return (entry != null) ? entry.getTask() : tasksByGuid.get(guid);
+    }
+
+    private Mono<Void> write(final JournalOperation operation, final UUID guid, final StoredTask task) {
+        final JournalEntry entry = JournalEntry.builder()
+                .sequence(++appendedSequence)
+                .operation(operation)
+                .guid(guid)
+                .task(task)
+                .build();
+        pending.put(guid, entry);
+        final CompletableFuture<Void> applied = journal.append(entry)
+                .whenComplete((v, e) -> {
+                    synchronized (writeLock) {
+                        pending.remove(guid, entry);
+                        if (e == null) {
+                            apply(entry);
+                        }
+                    }
+                });
+        return Mono.fromFuture(applied)
+                .publishOn(Schedulers.parallel());
+    }
+
+    private void apply(final JournalEntry entry) {
+        sequence = entry.getSequence();
+        switch (entry.getOperation()) {
+            case PUT:
+                index(entry.getTask());
+                break;
+            case DELETE:
+                unindex(tasksByGuid.remove(entry.getGuid()));
+                break;
+        }
+    }
+
+    private void index(final StoredTask stored) {
+        final TaskResource task = stored.getTask();
+        unindex(tasksByGuid.put(task.getGuid(), stored));
+        tasksById.put(stored.getId(), stored);
+        statusIndex.get(task.getStatus()).add(stored.getId());
+        indexValues(LookupValueType.GROUP, task.getGroups(), task.getGuid());
+        indexValues(LookupValueType.TAG, task.getTags(), task.getGuid());
+    }
+
+    private void indexValues(final LookupValueType type, final Collection<String> values, final UUID guid) {
+        final Map<String, Set<UUID>> index = lookupIndex.get(type);
+        values.forEach(value -> index.computeIfAbsent(value, key -> ConcurrentHashMap.newKeySet()).add(guid));
+    }
+
+    private void unindex(final StoredTask stored) {
+        if (stored == null) {
+            return;
+        }
+        final TaskResource task = stored.getTask();
+        tasksById.remove(stored.getId());
+        statusIndex.get(task.getStatus()).remove(stored.getId());
+        unindexValues(LookupValueType.GROUP, task.getGroups(), task.getGuid());
+        unindexValues(LookupValueType.TAG, task.getTags(), task.getGuid());
+    }
+
+    private void unindexValues(final LookupValueType type, final Collection<String> values, final UUID guid) {
+        final Map<String, Set<UUID>> index = lookupIndex.get(type);
+        values.forEach(value -> index.computeIfPresent(value, (key, guids) -> {
+            guids.remove(guid);
+            return guids.isEmpty() ? null : guids;
+        }));
+    }
+
+}
@@ -0,0 +1,278 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.journal;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Slf4j
+public class TaskJournal implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final int maxBatchSize;
+    private final BlockingQueue<JournalWrite> queue;
+    private final Thread writerThread;
+    private final Object lifecycleLock;
+
+    private volatile boolean running;
+    private FileChannel channel;
+
+    public TaskJournal(final Path directory, final ObjectMapper objectMapper, final int maxBatchSize) {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new LinkedBlockingQueue<>();
+        this.lifecycleLock = new Object();
+        this.writerThread = new Thread(this::writeLoop, "task-journal-writer");
+        this.writerThread.setDaemon(true);
+    }
+
+    public long replay(final long afterSequence, final Consumer<JournalEntry> consumer) throws IOException {
+        long lastSequence = afterSequence;
+        for (final Path segment : listSegments()) {
+            try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    final JournalEntry entry;
+                    try {
+                        entry = objectMapper.readValue(line, JournalEntry.class);
+                    } catch (final JsonProcessingException e) {
+                        log.warn("Ignoring torn record at the end of journal segment {}", segment);
+                        break;
+                    }
+                    if (entry.getSequence() > lastSequence) {
+                        consumer.accept(entry);
+                        lastSequence = entry.getSequence();
+                    }
+                }
+            }
+        }
+        return lastSequence;
+    }
+
+    public void start(final long nextSequence) throws IOException {
+        Files.createDirectories(directory);
+        channel = openSegment(nextSequence);
+        synchronized (lifecycleLock) {
+            running = true;
+        }
+        writerThread.start();
+    }
+
+    public CompletableFuture<Void> append(final JournalEntry entry) {
+        final byte[] record;
+        try {
+            final byte[] json = objectMapper.writeValueAsBytes(entry);
+            record = new byte[json.length + 1];
+            System.arraycopy(json, 0, record, 0, json.length);
+            record[json.length] = '\n';
+        } catch (final JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return enqueue(new JournalWrite(record, 0L));
+    }
+
+    public CompletableFuture<Void> rotate(final long nextSequence) {
+        return enqueue(new JournalWrite(null, nextSequence));
+    }
+
+    public void deleteSegmentsBefore(final long sequence) throws IOException {
+        for (final Path segment : listSegments()) {
+            if (segmentStart(segment) < sequence) {
+                Files.deleteIfExists(segment);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lifecycleLock) {
+            running = false;
+        }
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        final List<JournalWrite> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        if (!abandoned.isEmpty()) {
+            log.warn("Failing {} journal writes still queued at close", abandoned.size());
+            final IllegalStateException closed = new IllegalStateException("Task journal closed before write");
+            abandoned.forEach(write -> write.future.completeExceptionally(closed));
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(final JournalWrite write) {
+        synchronized (lifecycleLock) {
+            if (!running) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Task journal is not running"));
+            }
+            queue.add(write);
+        }
+        return write.future;
+    }
+
+    private void writeLoop() {
+        final List<JournalWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                final JournalWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatchSize - 1);
+                    writeBatch(batch);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(final List<JournalWrite> batch) {
+        final List<JournalWrite> pending = new ArrayList<>(batch.size());
+        for (final JournalWrite write : batch) {
+            if (write.record != null) {
+                pending.add(write);
+            } else {
+                flush(pending);
+                rotateSegment(write);
+            }
+        }
+        flush(pending);
+    }
+
+    private void flush(final List<JournalWrite> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            final ByteBuffer[] buffers = new ByteBuffer[pending.size()];
+            long remaining = 0;
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = ByteBuffer.wrap(pending.get(i).record);
+                remaining += buffers[i].remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+            channel.force(false);
+            pending.forEach(write -> write.future.complete(null));
+        } catch (final IOException e) {
+            log.error("Unable to write {} journal records", pending.size(), e);
+            pending.forEach(write -> write.future.completeExceptionally(e));
+        }
+        pending.clear();
+    }
+
+    private void rotateSegment(final JournalWrite rotation) {
+        try {
+            channel.force(true);
+            channel.close();
+            channel = openSegment(rotation.nextSequence);
+            rotation.future.complete(null);
+        } catch (final IOException e) {
+            log.error("Unable to rotate journal segment", e);
+            rotation.future.completeExceptionally(e);
+        }
+    }
+
+    private FileChannel openSegment(final long startSequence) throws IOException {
+        final Path segment = directory.resolve(
+                String.format("%s%020d%s", SEGMENT_PREFIX, startSequence, SEGMENT_SUFFIX));
+        return FileChannel.open(segment,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> {
+                        final String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static long segmentStart(final Path segment) {
+        final String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static class JournalWrite {
+
+        private final byte[] record;
+        private final long nextSequence;
+        private final CompletableFuture<Void> future;
+
+        private JournalWrite(final byte[] record, final long nextSequence) {
+            this.record = record;
+            this.nextSequence = nextSequence;
+            this.future = new CompletableFuture<>();
+        }
+
+    }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.mapping;
+
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.model.History;
+import io.jrb.labs.tasksms.model.HistoryType;
+import io.r2dbc.spi.Row;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+
+@ReadingConverter
+public class HistoryRowConverter implements Converter<Row, History> {
+
+    @Override
+    public History convert(final Row row) {
+        return new History(
+                Rows.getLong(row, "hi_id"),
+                Rows.getString(row, "tenant_id"),
+                Rows.getEnum(row, "entity_type", EntityType.class),
+                Rows.getLong(row, "entity_id"),
+                Rows.getUuid(row, "entity_guid"),
+                Rows.getEnum(row, "event_type", HistoryType.class),
+                Rows.getInstant(row, "created_on")
+        );
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.mapping;
+
+import io.r2dbc.spi.Row;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+final class Rows {
+
+    private Rows() {
+    }
+
+    static long getLong(final Row row, final String name) {
+        final Number value = (Number) row.get(name);
+        return (value != null) ? value.longValue() : 0L;
+    }
+
+    static String getString(final Row row, final String name) {
+        return row.get(name, String.class);
+    }
+
+    static UUID getUuid(final Row row, final String name) {
+        return row.get(name, UUID.class);
+    }
+
+    static Instant getInstant(final Row row, final String name) {
+        final LocalDateTime value = row.get(name, LocalDateTime.class);
+        return (value != null) ? value.atZone(ZoneId.systemDefault()).toInstant() : null;
+    }
+
+    static <E extends Enum<E>> E getEnum(final Row row, final String name, final Class<E> type) {
+        final String value = row.get(name, String.class);
+        return (value != null) ? Enum.valueOf(type, value) : null;
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.mapping;
+
+import io.jrb.labs.tasksms.model.LookupValue;
+import io.jrb.labs.tasksms.model.Task;
+import io.jrb.labs.tasksms.model.TaskStatus;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import io.r2dbc.spi.Row;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public final class TaskMapper {
+
+    private TaskMapper() {
+    }
+
+    public static Task toEntity(
+            final TaskResource resource,
+            final UUID guid,
+            final String tenantId,
+            final TaskStatus status,
+            final Instant dueOn,
+            final Instant createdOn
+    ) {
+        return newTask(null, guid, tenantId, resource.getName(), resource.getDescription(), status,
+                null, null, dueOn, resource.getRecurrence(), null, null, createdOn, null, null);
+    }
+
+    public static Task toImportedEntity(
+            final TaskResource resource,
+            final UUID guid,
+            final String tenantId,
+            final Instant now
+    ) {
+        return newTask(
+                null,
+                guid,
+                tenantId,
+                resource.getName(),
+                resource.getDescription(),
+                Optional.ofNullable(resource.getStatus()).orElse(TaskStatus.PENDING),
+                null,
+                null,
+                resource.getDueOn(),
+                resource.getRecurrence(),
+                null,
+                resource.getCreatedBy(),
+                Optional.ofNullable(resource.getCreatedOn()).orElse(now),
+                resource.getModifiedBy(),
+                Optional.ofNullable(resource.getModifiedOn()).orElse(now)
+        );
+    }
+
+    public static Task fromRow(final Row row) {
+        return newTask(
+                Rows.getLong(row, "ta_id"),
+                Rows.getUuid(row, "guid"),
+                Rows.getString(row, "tenant_id"),
+                Rows.getString(row, "name"),
+                Rows.getString(row, "description"),
+                Rows.getEnum(row, "status", TaskStatus.class),
+                Rows.getUuid(row, "lease_id"),
+                Rows.getInstant(row, "lease_expires_on"),
+                Rows.getInstant(row, "due_on"),
+                Rows.getString(row, "recurrence"),
+                Rows.getInstant(row, "deleted_on"),
+                Rows.getString(row, "created_by"),
+                Rows.getInstant(row, "created_on"),
+                Rows.getString(row, "modified_by"),
+                Rows.getInstant(row, "modified_on")
+        );
+    }
+
+    public static TaskResource toResource(final Task task) {
+        return toResource(task, Collections.emptyList(), Collections.emptyList());
+    }
+
+    public static TaskResource toResource(final Task task, final TaskStatus status, final Instant modifiedOn) {
+        return newResource(task, status, modifiedOn, Collections.emptyList(), Collections.emptyList());
+    }
+
+    public static TaskResource toResource(final Task task, final List<String> groups, final List<String> tags) {
+        return newResource(task, task.getStatus(), task.getModifiedOn(), groups, tags);
+    }
+
+    public static TaskResource toResource(final Task task, final Collection<LookupValue> lookupValues) {
+        if (lookupValues.isEmpty()) {
+            return toResource(task);
+        }
+        List<String> groups = Collections.emptyList();
+        List<String> tags = Collections.emptyList();
+        for (final LookupValue lookupValue : lookupValues) {
+            switch (lookupValue.getValueType()) {
+                case GROUP:
+                    groups = append(groups, lookupValue.getValue(), lookupValues.size());
+                    break;
+                case TAG:
+                    tags = append(tags, lookupValue.getValue(), lookupValues.size());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported lookup value type " + lookupValue.getValueType());
+            }
+        }
+        return toResource(task, groups, tags);
+    }
+
+    private static TaskResource newResource(
+            final Task task,
+            final TaskStatus status,
+            final Instant modifiedOn,
+            final List<String> groups,
+            final List<String> tags
+    ) {
+        return new TaskResource(
+                task.getGuid(),
+                task.getName(),
+                task.getDescription(),
+                status,
+                task.getDueOn(),
+                task.getRecurrence(),
+                task.getCreatedBy(),
+                task.getCreatedOn(),
+                task.getModifiedBy(),
+                modifiedOn,
+                Collections.unmodifiableList(groups),
+                Collections.unmodifiableList(tags)
+        );
+    }
+
+    private static Task newTask(
+            final Long id,
+            final UUID guid,
+            final String tenantId,
+            final String name,
+            final String description,
+            final TaskStatus status,
+            final UUID leaseId,
+            final Instant leaseExpiresOn,
+            final Instant dueOn,
+            final String recurrence,
+            final Instant deletedOn,
+            final String createdBy,
+            final Instant createdOn,
+            final String modifiedBy,
+            final Instant modifiedOn
+    ) {
+        return new Task(id, guid, tenantId, name, description, status, leaseId, leaseExpiresOn, dueOn, recurrence,
+                deletedOn, createdBy, createdOn, modifiedBy, modifiedOn);
+    }
+
+    private static List<String> append(final List<String> values, final String value, final int capacity) {
+        final List<String> target = values.isEmpty() ? new ArrayList<>(capacity) : values;
+        target.add(value);
+        return target;
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import reactor.core.Scannable;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.Operators;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Slf4j
+public class OperationTimingHook implements DisposableBean {
+
+    public static final String OPERATION_TAG = "operation";
+
+    private static final String HOOK_KEY = OperationTimingHook.class.getName();
+
+    private final MeterRegistry meterRegistry;
+    private final String prefix;
+
+    public OperationTimingHook(final MeterRegistry meterRegistry, final String prefix) {
+        this.meterRegistry = meterRegistry;
+        this.prefix = prefix;
+        log.info("Timing reactive chains named '{}*'", prefix);
+        Hooks.onEachOperator(HOOK_KEY, Operators.lift(this::isTimed, (scannable, subscriber) ->
+                new OperationTimingSubscriber<>(subscriber, timerFor(namedOperator(scannable).orElseThrow()))));
+    }
+
+    @Override
+    public void destroy() {
+        Hooks.resetOnEachOperator(HOOK_KEY);
+    }
+
+    private boolean isTimed(final Scannable scannable) {
+        return namedOperator(scannable)
+                .map(named -> named.scan(Scannable.Attr.NAME).startsWith(prefix))
+                .orElse(false);
+    }
+
+    private static Optional<Scannable> namedOperator(final Scannable scannable) {
+        return Stream.of(scannable, scannable.scan(Scannable.Attr.PARENT))
+                .filter(operator -> operator != null && operator.scan(Scannable.Attr.NAME) != null)
+                .findFirst();
+    }
+
+    private OperationTimingSubscriber.Timers timerFor(final Scannable named) {
+        final String name = named.scan(Scannable.Attr.NAME);
+        final List<Tag> tags = Optional.ofNullable(named.scan(Scannable.Attr.TAGS))
+                .map(stream -> stream.map(tag -> Tag.of(tag.getT1(), tag.getT2())).collect(Collectors.toList()))
+                .orElseGet(List::of);
+        return new OperationTimingSubscriber.Timers(
+                timer(name, tags, "success"),
+                timer(name, tags, "error"),
+                timer(name, tags, "timeout"),
+                timer(name, tags, "cancelled"));
+    }
+
+    private Timer timer(final String name, final List<Tag> tags, final String outcome) {
+        return Timer.builder(name)
+                .tags(Tags.of(tags).and("outcome", outcome))
+                .register(meterRegistry);
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.Value;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Fuseable;
+import reactor.core.publisher.Operators;
+import reactor.util.context.Context;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class OperationTimingSubscriber<T> implements CoreSubscriber<T>, Fuseable.QueueSubscription<T> {
+
+    private final CoreSubscriber<? super T> actual;
+    private final Timers timers;
+    private final AtomicBoolean recorded = new AtomicBoolean();
+
+    private Subscription upstream;
+    private long startNanos;
+
+    OperationTimingSubscriber(final CoreSubscriber<? super T> actual, final Timers timers) {
+        this.actual = actual;
+        this.timers = timers;
+    }
+
+    @Override
+    public Context currentContext() {
+        return actual.currentContext();
+    }
+
+    @Override
+    public void onSubscribe(final Subscription subscription) {
+        if (Operators.validate(upstream, subscription)) {
+            upstream = subscription;
+            startNanos = System.nanoTime();
+            actual.onSubscribe(this);
+        }
+    }
+
+    @Override
+    public void onNext(final T value) {
+        actual.onNext(value);
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        record((throwable instanceof TimeoutException) ? timers.getTimeout() : timers.getError());
+        actual.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        record(timers.getSuccess());
+        actual.onComplete();
+    }
+
+    @Override
+    public void request(final long n) {
+        upstream.request(n);
+    }
+
+    @Override
+    public void cancel() {
+        record(timers.getCancelled());
+        upstream.cancel();
+    }
+
+    @Override
+    public int requestFusion(final int requestedMode) {
+        return Fuseable.NONE;
+    }
+
+    @Override
+    public T poll() {
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return true;
+    }
+
+    @Override
+    public void clear() {
+    }
+
+    private void record(final Timer timer) {
+        if (recorded.compareAndSet(false, true)) {
+            timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Value
+    static class Timers {
+        Timer success;
+        Timer error;
+        Timer timeout;
+        Timer cancelled;
+    }
+
+}
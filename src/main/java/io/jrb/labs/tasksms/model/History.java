@@ -23,6 +23,7 @@
  */
 package io.jrb.labs.tasksms.model;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Value;
 import org.springframework.data.annotation.Id;
@@ -30,9 +31,11 @@ import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
 import java.time.Instant;
+import java.util.UUID;
 
 @Value
 @Builder(toBuilder = true)
+@AllArgsConstructor
 @Table(value = "t_history")
 public class History {
 
@@ -40,12 +43,18 @@ public class History {
     @Column(value = "hi_id")
     long id;
 
+    @Column(value = "tenant_id")
+    String tenantId;
+
     @Column(value = "entity_type")
     EntityType entityType;
 
     @Column(value = "entity_id")
     long entityId;
 
+    @Column(value = "entity_guid")
+    UUID entityGuid;
+
     @Column(value = "event_type")
     HistoryType eventType;
 
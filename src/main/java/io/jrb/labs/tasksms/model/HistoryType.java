@@ -27,6 +27,8 @@ public enum HistoryType {
     CANCELLED,
     CREATED,
     DELETED,
+    EXPIRED,
+    RESTORED,
     STARTED,
     STOPPED,
     UPDATED;
@@ -23,6 +23,7 @@
  */
 package io.jrb.labs.tasksms.model;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Value;
 import org.springframework.data.annotation.Id;
@@ -31,6 +32,7 @@ import org.springframework.data.relational.core.mapping.Table;
 
 @Value
 @Builder(toBuilder = true)
+@AllArgsConstructor
 @Table(value = "t_lookup_value")
 public class LookupValue {
 
@@ -38,6 +40,9 @@ public class LookupValue {
     @Column(value = "lv_id")
     long id;
 
+    @Column(value = "tenant_id")
+    String tenantId;
+
     @Column(value = "entity_type")
     EntityType entityType;
 
@@ -50,4 +55,14 @@ public class LookupValue {
     @Column(value = "lookup_value")
     String value;
 
+    public static LookupValue of(
+            final String tenantId,
+            final EntityType entityType,
+            final long entityId,
+            final LookupValueType valueType,
+            final String value
+    ) {
+        return new LookupValue(0L, tenantId, entityType, entityId, valueType, value);
+    }
+
 }
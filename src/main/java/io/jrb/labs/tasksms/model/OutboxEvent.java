@@ -0,0 +1,72 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Value
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@Table(value = "t_outbox")
+public class OutboxEvent {
+
+    @Id
+    @Column(value = "ob_id")
+    long id;
+
+    @Column(value = "event_id")
+    UUID eventId;
+
+    @Column(value = "tenant_id")
+    String tenantId;
+
+    @Column(value = "entity_type")
+    EntityType entityType;
+
+    @Column(value = "entity_id")
+    long entityId;
+
+    @Column(value = "entity_guid")
+    UUID entityGuid;
+
+    @Column(value = "event_type")
+    HistoryType eventType;
+
+    @Column(value = "created_on")
+    Instant createdOn;
+
+    public static OutboxEvent fromHistory(final History history) {
+        return new OutboxEvent(0L, UUID.randomUUID(), history.getTenantId(), history.getEntityType(),
+                history.getEntityId(), history.getEntityGuid(), history.getEventType(), history.getCreatedOn());
+    }
+
+}
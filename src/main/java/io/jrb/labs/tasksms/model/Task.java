@@ -25,9 +25,10 @@ package io.jrb.labs.tasksms.model;
 
 import io.jrb.labs.common.entity.Entity;
 import io.jrb.labs.common.entity.EntityBuilder;
-import io.jrb.labs.tasksms.resource.TaskResource;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Value;
+import lombok.With;
 import org.springframework.data.annotation.CreatedBy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
@@ -41,22 +42,45 @@ import java.util.UUID;
 
 @Value
 @Builder(toBuilder = true)
+@AllArgsConstructor
 @Table(value = "t_task")
 public class Task implements Entity {
 
     @Id
+    @With
     @Column(value = "ta_id")
     Long id;
 
     @Column(value = "guid")
     UUID guid;
 
+    @Column(value = "tenant_id")
+    String tenantId;
+
     @Column(value = "name")
     String name;
 
     @Column(value = "description")
     String description;
 
+    @Column(value = "status")
+    TaskStatus status;
+
+    @Column(value = "lease_id")
+    UUID leaseId;
+
+    @Column(value = "lease_expires_on")
+    Instant leaseExpiresOn;
+
+    @Column(value = "due_on")
+    Instant dueOn;
+
+    @Column(value = "recurrence")
+    String recurrence;
+
+    @Column(value = "deleted_on")
+    Instant deletedOn;
+
     @CreatedBy
     @Column(value = "created_by")
     String createdBy;
@@ -73,13 +97,6 @@ public class Task implements Entity {
     @Column(value = "modified_on")
     Instant modifiedOn;
 
-    public static TaskBuilder fromResource(final TaskResource taskResource) {
-        return Task.builder()
-                .guid(taskResource.getGuid())
-                .name(taskResource.getName())
-                .description(taskResource.getDescription());
-    }
-
     public static class TaskBuilder implements EntityBuilder<Task, TaskBuilder> {
     }
 
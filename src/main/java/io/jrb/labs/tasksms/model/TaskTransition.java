@@ -0,0 +1,64 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.model;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public enum TaskTransition {
+
+    START(HistoryType.STARTED, TaskStatus.RUNNING, EnumSet.of(TaskStatus.PENDING, TaskStatus.STOPPED)),
+    STOP(HistoryType.STOPPED, TaskStatus.STOPPED, EnumSet.of(TaskStatus.RUNNING)),
+    CANCEL(HistoryType.CANCELLED, TaskStatus.CANCELLED,
+            EnumSet.of(TaskStatus.PENDING, TaskStatus.RUNNING, TaskStatus.STOPPED));
+
+    private final HistoryType historyType;
+    private final TaskStatus target;
+    private final Set<TaskStatus> sources;
+
+    TaskTransition(final HistoryType historyType, final TaskStatus target, final Set<TaskStatus> sources) {
+        this.historyType = historyType;
+        this.target = target;
+        this.sources = sources;
+    }
+
+    public HistoryType getHistoryType() {
+        return historyType;
+    }
+
+    public TaskStatus getTarget() {
+        return target;
+    }
+
+    public Set<TaskStatus> getSources() {
+        return sources;
+    }
+
+    public List<String> getSourceNames() {
+        return sources.stream().map(TaskStatus::name).collect(Collectors.toList());
+    }
+
+}
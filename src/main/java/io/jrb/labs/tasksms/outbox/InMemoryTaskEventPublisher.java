@@ -0,0 +1,71 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.outbox;
+
+import io.jrb.labs.tasksms.resource.TaskEventResource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public class InMemoryTaskEventPublisher implements TaskEventPublisher {
+
+    private final Set<UUID> seenEventIds;
+    private final Sinks.Many<TaskEventResource> sink;
+
+    public InMemoryTaskEventPublisher(final int dedupCapacity) {
+        this.seenEventIds = Collections.newSetFromMap(new LinkedHashMap<UUID, Boolean>() {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<UUID, Boolean> eldest) {
+                return size() > dedupCapacity;
+            }
+        });
+        this.sink = Sinks.many().multicast().directBestEffort();
+    }
+
+    public Flux<TaskEventResource> events() {
+        return sink.asFlux();
+    }
+
+    @Override
+    public Mono<Void> publish(final List<TaskEventResource> events) {
+        return Mono.fromRunnable(() -> {
+            final List<TaskEventResource> accepted = new ArrayList<>(events.size());
+            synchronized (seenEventIds) {
+                events.stream()
+                        .filter(event -> seenEventIds.add(event.getEventId()))
+                        .forEach(accepted::add);
+            }
+            accepted.forEach(event -> sink.emitNext(event, Sinks.EmitFailureHandler.FAIL_FAST));
+        });
+    }
+
+}
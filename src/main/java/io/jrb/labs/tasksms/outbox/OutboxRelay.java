@@ -0,0 +1,142 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.outbox;
+
+import io.jrb.labs.tasksms.model.OutboxEvent;
+import io.jrb.labs.tasksms.repository.OutboxEventRepository;
+import io.jrb.labs.tasksms.resource.TaskEventResource;
+import io.jrb.labs.tasksms.schedule.LeaderLease;
+import io.jrb.labs.tasksms.schedule.PeriodicJob;
+import io.jrb.labs.tasksms.schedule.PeriodicJobSupport;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+@Slf4j
+public class OutboxRelay extends PeriodicJobSupport {
+
+    public static final String LEASE_NAME = "outbox-relay";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final TaskEventPublisher taskEventPublisher;
+    private final ShardRouter shardRouter;
+    private final LeaderLease lease;
+    private final int batchSize;
+    private final AtomicLong lagMillis;
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    private final Timer publishTimer;
+
+    public OutboxRelay(
+            final OutboxEventRepository outboxEventRepository,
+            final TaskEventPublisher taskEventPublisher,
+            final ShardRouter shardRouter,
+            final LeaderLease lease,
+            final MeterRegistry meterRegistry,
+            final Duration interval,
+            final int batchSize
+    ) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.taskEventPublisher = taskEventPublisher;
+        this.shardRouter = shardRouter;
+        this.lease = lease;
+        this.batchSize = batchSize;
+        this.lagMillis = new AtomicLong();
+        this.publishedCounter = meterRegistry.counter("tasks.outbox.published");
+        this.failedCounter = meterRegistry.counter("tasks.outbox.failed");
+        this.publishTimer = meterRegistry.timer("tasks.outbox.publish");
+        TimeGauge.builder("tasks.outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("tasks.outbox.leader", lease, leaderLease -> leaderLease.isHeld() ? 1 : 0)
+                .register(meterRegistry);
+        register(PeriodicJob.every(lease.getRenewInterval(), "renew outbox relay lease",
+                () -> lease.renew(Mono::empty, () -> lagMillis.set(0L)))
+                .startingAfter(Duration.ZERO));
+        register(PeriodicJob.every(interval, "relay task outbox events", () -> lease.isHeld()
+                ? drain().doOnError(e -> failedCounter.increment())
+                : Mono.empty()));
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        super.destroy();
+        lease.release();
+    }
+
+    private Mono<Long> drain() {
+        final AtomicLong sweepLag = new AtomicLong();
+        return Flux.fromIterable(shardRouter.shards())
+                .concatMap(shard -> shardRouter.onShard(shard, drainShard(sweepLag)))
+                .then(Mono.fromSupplier(sweepLag::get))
+                .doOnNext(lagMillis::set);
+    }
+
+    private Mono<Integer> drainShard(final AtomicLong sweepLag) {
+        return relayBatch(0L, sweepLag)
+                .expand(events -> (events.size() < batchSize)
+                        ? Mono.empty()
+                        : relayBatch(events.get(events.size() - 1).getId(), sweepLag))
+                .map(List::size)
+                .reduce(0, Integer::sum);
+    }
+
+    private Mono<List<OutboxEvent>> relayBatch(final long afterId, final AtomicLong sweepLag) {
+        return outboxEventRepository.findBatchAfter(afterId, batchSize)
+                .collectList()
+                .filter(events -> !events.isEmpty())
+                .flatMap(events -> {
+                    final Instant oldest = events.get(0).getCreatedOn();
+                    if (oldest != null) {
+                        sweepLag.accumulateAndGet(Duration.between(oldest, Instant.now()).toMillis(), Math::max);
+                    }
+                    final List<TaskEventResource> resources = events.stream()
+                            .map(TaskEventResource::fromEntity)
+                            .collect(Collectors.toList());
+                    final long start = System.nanoTime();
+                    return taskEventPublisher.publish(resources)
+                            .doOnSuccess(v -> {
+                                publishTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                                publishedCounter.increment(events.size());
+                            })
+                            .then(outboxEventRepository.deleteByIds(events.stream()
+                                    .map(OutboxEvent::getId)
+                                    .collect(Collectors.toList())))
+                            .thenReturn(events);
+                });
+    }
+
+}
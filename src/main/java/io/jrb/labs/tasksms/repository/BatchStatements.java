@@ -0,0 +1,72 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.repository;
+
+import io.r2dbc.spi.Statement;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+final class BatchStatements {
+
+    private BatchStatements() {
+    }
+
+    static <T> Mono<Void> execute(
+            final DatabaseClient databaseClient,
+            final String sql,
+            final List<T> rows,
+            final BiConsumer<Statement, T> binder
+    ) {
+        if (rows.isEmpty()) {
+            return Mono.empty();
+        }
+        return databaseClient.inConnection(connection ->
+                Flux.from(bindAll(connection.createStatement(sql), rows, binder).execute())
+                        .concatMap(result -> result.getRowsUpdated())
+                        .then());
+    }
+
+    static <T> Statement bindAll(final Statement statement, final List<T> rows, final BiConsumer<Statement, T> binder) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) {
+                statement.add();
+            }
+            binder.accept(statement, rows.get(i));
+        }
+        return statement;
+    }
+
+    static <V> void bindNullable(final Statement statement, final int index, final V value, final Class<V> type) {
+        if (value != null) {
+            statement.bind(index, value);
+        } else {
+            statement.bindNull(index, type);
+        }
+    }
+
+}
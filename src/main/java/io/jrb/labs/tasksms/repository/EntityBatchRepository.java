@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.repository;
+
+import io.jrb.labs.tasksms.model.History;
+import io.jrb.labs.tasksms.model.LookupValue;
+import io.jrb.labs.tasksms.model.OutboxEvent;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public class EntityBatchRepository {
+
+    private static final String INSERT_LOOKUP_VALUE = "insert into t_lookup_value"
+            + " (tenant_id, entity_type, entity_id, lookup_value_type, lookup_value)"
+            + " values ($1, $2, $3, $4, $5)";
+
+    private static final String INSERT_HISTORY = "insert into t_history"
+            + " (tenant_id, entity_type, entity_id, entity_guid, event_type, created_on)"
+            + " values ($1, $2, $3, $4, $5, $6)";
+
+    private static final String INSERT_OUTBOX_EVENT = "insert into t_outbox"
+            + " (event_id, tenant_id, entity_type, entity_id, entity_guid, event_type, created_on)"
+            + " values ($1, $2, $3, $4, $5, $6, $7)";
+
+    private final DatabaseClient databaseClient;
+
+    public EntityBatchRepository(final DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Void> insertLookupValues(final List<LookupValue> lookupValues) {
+        return BatchStatements.execute(databaseClient, INSERT_LOOKUP_VALUE, lookupValues, (statement, lookupValue) -> {
+            statement.bind(0, lookupValue.getTenantId());
+            statement.bind(1, lookupValue.getEntityType().name());
+            statement.bind(2, lookupValue.getEntityId());
+            statement.bind(3, lookupValue.getValueType().name());
+            statement.bind(4, lookupValue.getValue());
+        });
+    }
+
+    public Mono<Void> insertHistory(final List<History> histories) {
+        return BatchStatements.execute(databaseClient, INSERT_HISTORY, histories, (statement, history) -> {
+            statement.bind(0, history.getTenantId());
+            statement.bind(1, history.getEntityType().name());
+            statement.bind(2, history.getEntityId());
+            statement.bind(3, history.getEntityGuid());
+            statement.bind(4, history.getEventType().name());
+            BatchStatements.bindNullable(statement, 5, history.getCreatedOn(), Instant.class);
+        });
+    }
+
+    public Mono<Void> insertOutboxEvents(final List<OutboxEvent> events) {
+        return BatchStatements.execute(databaseClient, INSERT_OUTBOX_EVENT, events, (statement, event) -> {
+            statement.bind(0, event.getEventId());
+            statement.bind(1, event.getTenantId());
+            statement.bind(2, event.getEntityType().name());
+            statement.bind(3, event.getEntityId());
+            statement.bind(4, event.getEntityGuid());
+            statement.bind(5, event.getEventType().name());
+            BatchStatements.bindNullable(statement, 6, event.getCreatedOn(), Instant.class);
+        });
+    }
+
+}
@@ -25,13 +25,27 @@ package io.jrb.labs.tasksms.repository;
 
 import io.jrb.labs.tasksms.model.EntityType;
 import io.jrb.labs.tasksms.model.History;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
 
 @Repository
 public interface HistoryRepository extends ReactiveCrudRepository<History, Long>  {
 
-    Flux<History> findByEntityTypeAndEntityId(EntityType entityType, long entityId);
+    @Query("select * from t_history where hi_id > :afterId order by hi_id limit :limit")
+    Flux<History> findBatchAfter(long afterId, int limit);
+
+    Flux<History> findByTenantIdAndEntityTypeAndEntityIdOrderById(
+            String tenantId, EntityType entityType, long entityId);
+
+    Flux<History> findByTenantIdAndEntityTypeAndEntityIdInOrderById(
+            String tenantId, EntityType entityType, Collection<Long> entityIds);
+
+    @Query("select coalesce(max(hi_id), 0) from t_history")
+    Mono<Long> findMaxId();
 
 }
@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.repository;
+
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.model.HistoryRollup;
+import io.jrb.labs.tasksms.model.HistoryType;
+import io.jrb.labs.tasksms.model.RollupBucket;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+@Repository
+public class HistoryRollupRepository {
+
+    private static final String MERGE_ROLLUP = "merge into t_history_rollup r"
+            + " using (select cast($1 as varchar(64)) tenant_id, cast($2 as varchar(16)) bucket_size,"
+            + " cast($3 as timestamp) bucket_start, cast($4 as varchar(64)) entity_type,"
+            + " cast($5 as varchar(64)) event_type, cast($6 as bigint) event_count) s"
+            + " on r.tenant_id = s.tenant_id and r.bucket_size = s.bucket_size and r.bucket_start = s.bucket_start"
+            + " and r.entity_type = s.entity_type and r.event_type = s.event_type"
+            + " when matched then update set r.event_count = r.event_count + s.event_count"
+            + " when not matched then insert (tenant_id, bucket_size, bucket_start, entity_type, event_type,"
+            + " event_count) values (s.tenant_id, s.bucket_size, s.bucket_start, s.entity_type, s.event_type,"
+            + " s.event_count)";
+
+    private static final String SELECT_ROLLUPS = "select bucket_start, entity_type, event_type, event_count"
+            + " from t_history_rollup where tenant_id = :tenantId and bucket_size = :bucket"
+            + " and bucket_start >= :from and bucket_start < :to";
+
+    private final DatabaseClient databaseClient;
+
+    public HistoryRollupRepository(final DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Long> findMark() {
+        return databaseClient.sql("select last_history_id from t_history_rollup_mark where rm_id = 1")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .defaultIfEmpty(0L);
+    }
+
+    public Mono<Integer> advanceMark(final long expected, final long next) {
+        return databaseClient.sql("update t_history_rollup_mark set last_history_id = :next"
+                + " where rm_id = 1 and last_history_id = :expected")
+                .bind("next", next)
+                .bind("expected", expected)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Void> increment(final List<HistoryRollup> rollups) {
+        return BatchStatements.execute(databaseClient, MERGE_ROLLUP, rollups, (statement, rollup) -> {
+            statement.bind(0, rollup.getTenantId());
+            statement.bind(1, rollup.getBucket().name());
+            statement.bind(2, LocalDateTime.ofInstant(rollup.getBucketStart(), ZoneOffset.UTC));
+            statement.bind(3, rollup.getEntityType().name());
+            statement.bind(4, rollup.getEventType().name());
+            statement.bind(5, rollup.getCount());
+        });
+    }
+
+    public Flux<HistoryRollup> findRollups(
+            final String tenantId,
+            final RollupBucket bucket,
+            final Instant from,
+            final Instant to,
+            final EntityType entityType
+    ) {
+        final DatabaseClient.GenericExecuteSpec spec = (entityType != null)
+                ? databaseClient.sql(SELECT_ROLLUPS + " and entity_type = :entityType")
+                        .bind("entityType", entityType.name())
+                : databaseClient.sql(SELECT_ROLLUPS);
+        return spec.bind("tenantId", tenantId)
+                .bind("bucket", bucket.name())
+                .bind("from", LocalDateTime.ofInstant(from, ZoneOffset.UTC))
+                .bind("to", LocalDateTime.ofInstant(to, ZoneOffset.UTC))
+                .map(row -> HistoryRollup.builder()
+                        .tenantId(tenantId)
+                        .bucket(bucket)
+                        .bucketStart(row.get("bucket_start", LocalDateTime.class).toInstant(ZoneOffset.UTC))
+                        .entityType(EntityType.valueOf(row.get("entity_type", String.class)))
+                        .eventType(HistoryType.valueOf(row.get("event_type", String.class)))
+                        .count(row.get("event_count", Long.class))
+                        .build())
+                .all();
+    }
+
+}
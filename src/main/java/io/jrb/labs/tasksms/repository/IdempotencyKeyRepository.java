@@ -0,0 +1,96 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.repository;
+
+import io.jrb.labs.tasksms.model.IdempotencyRecord;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+@Repository
+public class IdempotencyKeyRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public IdempotencyKeyRepository(final DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<IdempotencyRecord> find(final String key, final LocalDateTime now) {
+        return databaseClient.sql("select fingerprint, response from t_idempotency_key"
+                + " where idem_key = :key and expires_on > :now")
+                .bind("key", key)
+                .bind("now", now)
+                .map(row -> new IdempotencyRecord(
+                        row.get("fingerprint", String.class),
+                        row.get("response", String.class)))
+                .one();
+    }
+
+    public Mono<Boolean> reserve(final String key, final String fingerprint, final LocalDateTime expiresOn) {
+        return databaseClient.sql("insert into t_idempotency_key (idem_key, fingerprint, response, expires_on)"
+                + " values (:key, :fingerprint, null, :expiresOn)")
+                .bind("key", key)
+                .bind("fingerprint", fingerprint)
+                .bind("expiresOn", expiresOn)
+                .fetch()
+                .rowsUpdated()
+                .map(inserted -> inserted > 0)
+                .onErrorReturn(DataIntegrityViolationException.class, false);
+    }
+
+    public Mono<Void> complete(final String key, final String response, final LocalDateTime expiresOn) {
+        return databaseClient.sql("update t_idempotency_key set response = :response, expires_on = :expiresOn"
+                + " where idem_key = :key")
+                .bind("key", key)
+                .bind("response", response)
+                .bind("expiresOn", expiresOn)
+                .then();
+    }
+
+    public Mono<Void> deletePending(final String key) {
+        return databaseClient.sql("delete from t_idempotency_key where idem_key = :key and response is null")
+                .bind("key", key)
+                .then();
+    }
+
+    public Mono<Integer> deleteExpired(final String key, final LocalDateTime now) {
+        return databaseClient.sql("delete from t_idempotency_key where idem_key = :key and expires_on <= :now")
+                .bind("key", key)
+                .bind("now", now)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Integer> deleteExpired(final LocalDateTime now) {
+        return databaseClient.sql("delete from t_idempotency_key where expires_on <= :now")
+                .bind("now", now)
+                .fetch()
+                .rowsUpdated();
+    }
+
+}
@@ -25,16 +25,27 @@ package io.jrb.labs.tasksms.repository;
 
 import io.jrb.labs.tasksms.model.EntityType;
 import io.jrb.labs.tasksms.model.LookupValue;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 @Repository
 public interface LookupValueRepository extends ReactiveCrudRepository<LookupValue, Long>  {
 
-    Mono<Void> deleteByEntityTypeAndEntityId(EntityType entityType, long entityId);
+    Mono<Void> deleteByTenantIdAndEntityTypeAndEntityId(String tenantId, EntityType entityType, long entityId);
+
+    Flux<LookupValue> findByTenantIdAndEntityTypeAndEntityId(String tenantId, EntityType entityType, long entityId);
+
+    Flux<LookupValue> findByTenantIdAndEntityTypeAndEntityIdIn(
+            String tenantId, EntityType entityType, Collection<Long> entityIds);
 
-    Flux<LookupValue> findByEntityTypeAndEntityId(EntityType entityType, long entityId);
+    @Modifying
+    @Query("delete from t_lookup_value where entity_type = :entityType and entity_id in (:entityIds)")
+    Mono<Integer> deleteByEntityTypeAndEntityIdIn(String entityType, Collection<Long> entityIds);
 
 }
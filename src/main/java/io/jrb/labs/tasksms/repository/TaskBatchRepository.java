@@ -0,0 +1,71 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.repository;
+
+import io.jrb.labs.tasksms.model.Task;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public class TaskBatchRepository {
+
+    private static final String INSERT_TASK = "insert into t_task"
+            + " (guid, tenant_id, name, description, status, due_on, recurrence, created_by, created_on,"
+            + " modified_by, modified_on) values ($1, $2, $3, $4, $5, $6, $7, $8, $9, $10, $11)";
+
+    private final DatabaseClient databaseClient;
+
+    public TaskBatchRepository(final DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Flux<Long> insertTasks(final List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.inConnectionMany(connection -> Flux.from(BatchStatements
+                .bindAll(connection.createStatement(INSERT_TASK), tasks, (statement, task) -> {
+                    BatchStatements.bindNullable(statement, 0, task.getGuid(), UUID.class);
+                    statement.bind(1, task.getTenantId());
+                    BatchStatements.bindNullable(statement, 2, task.getName(), String.class);
+                    BatchStatements.bindNullable(statement, 3, task.getDescription(), String.class);
+                    statement.bind(4, task.getStatus().name());
+                    BatchStatements.bindNullable(statement, 5, task.getDueOn(), Instant.class);
+                    BatchStatements.bindNullable(statement, 6, task.getRecurrence(), String.class);
+                    BatchStatements.bindNullable(statement, 7, task.getCreatedBy(), String.class);
+                    BatchStatements.bindNullable(statement, 8, task.getCreatedOn(), Instant.class);
+                    BatchStatements.bindNullable(statement, 9, task.getModifiedBy(), String.class);
+                    BatchStatements.bindNullable(statement, 10, task.getModifiedOn(), Instant.class);
+                })
+                .returnGeneratedValues("ta_id")
+                .execute())
+                .concatMap(result -> result.map((row, metadata) -> ((Number) row.get(0)).longValue())));
+    }
+
+}
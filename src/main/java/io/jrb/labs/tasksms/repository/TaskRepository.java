@@ -25,11 +25,16 @@ package io.jrb.labs.tasksms.repository;
 
 import io.jrb.labs.common.repository.EntityRepository;
 import io.jrb.labs.tasksms.model.Task;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.UUID;
+
 @Repository
 public interface TaskRepository extends EntityRepository<Task> {
 
@@ -39,4 +44,108 @@ public interface TaskRepository extends EntityRepository<Task> {
     @Query("select task_id, guid, name, description from t_task where name = $1")
     Flux<Task> findAllByName(String name);
 
+    @Query("select * from t_task where tenant_id = :tenantId and guid = :guid and deleted_on is null")
+    Mono<Task> findByTenantIdAndGuid(String tenantId, UUID guid);
+
+    @Query("select * from t_task where tenant_id = :tenantId and deleted_on is null order by created_on, guid")
+    Flux<Task> findAllOrdered(String tenantId);
+
+    @Query("select * from t_task where tenant_id = :tenantId and guid in (:guids) and deleted_on is null")
+    Flux<Task> findByGuidIn(String tenantId, Collection<UUID> guids);
+
+    @Query("select guid from t_task where guid in (:guids)")
+    Flux<UUID> findGuidsIn(Collection<UUID> guids);
+
+    @Query("select * from t_task where tenant_id = :tenantId and ta_id > :afterId and deleted_on is null"
+            + " order by ta_id limit :limit")
+    Flux<Task> findChunkAfter(String tenantId, long afterId, int limit);
+
+    @Query("select count(*) from t_task where tenant_id = :tenantId and deleted_on is null")
+    Mono<Long> countByTenantId(String tenantId);
+
+    @Query("select ta_id from t_task where deleted_on < :cutoff order by ta_id limit :limit")
+    Flux<Long> findDeletedBefore(Instant cutoff, int limit);
+
+    @Query("select t.* from t_task t join t_lookup_value lv on lv.tenant_id = t.tenant_id and lv.entity_id = t.ta_id"
+            + " where lv.tenant_id = :tenantId and lv.entity_type = :entityType and lv.lookup_value_type = :valueType"
+            + " and lv.lookup_value = :value and t.deleted_on is null order by t.created_on, t.guid")
+    Flux<Task> findByLookupValue(String tenantId, String entityType, String valueType, String value);
+
+    @Query("select * from t_task where tenant_id = :tenantId and status = :status and deleted_on is null"
+            + " order by created_on, guid limit :limit")
+    Flux<Task> findByStatus(String tenantId, String status, int limit);
+
+    @Query("select * from t_task where tenant_id = :tenantId and status = :status and deleted_on is null"
+            + " and (created_on > :afterOn or (created_on = :afterOn and guid > :afterGuid))"
+            + " order by created_on, guid limit :limit")
+    Flux<Task> findByStatusAfter(String tenantId, String status, Instant afterOn, UUID afterGuid, int limit);
+
+    @Modifying
+    @Query("update t_task set status = :status, modified_on = :modifiedOn where tenant_id = :tenantId"
+            + " and guid = :guid and status in (:sourceStatuses) and deleted_on is null")
+    Mono<Integer> updateStatus(
+            String tenantId, String status, Instant modifiedOn, UUID guid, Collection<String> sourceStatuses);
+
+    @Modifying
+    @Query("update t_task set status = 'RUNNING', lease_id = :leaseId, lease_expires_on = :expiresOn,"
+            + " modified_on = :now where status = 'PENDING' and ta_id in (select ta_id from t_task"
+            + " where tenant_id = :tenantId and status = 'PENDING' and recurrence is null and deleted_on is null"
+            + " and (due_on is null or due_on <= :now) order by ta_id limit :limit)")
+    Mono<Integer> claimPending(String tenantId, UUID leaseId, Instant expiresOn, Instant now, int limit);
+
+    @Query("select * from t_task where tenant_id = :tenantId and lease_id = :leaseId and status = 'RUNNING'"
+            + " and deleted_on is null order by ta_id")
+    Flux<Task> findLeased(String tenantId, UUID leaseId);
+
+    @Query("select * from t_task where tenant_id = :tenantId and lease_id = :leaseId and status = 'RUNNING'"
+            + " and deleted_on is null order by ta_id for update")
+    Flux<Task> lockLeased(String tenantId, UUID leaseId);
+
+    @Modifying
+    @Query("update t_task set lease_expires_on = :expiresOn where tenant_id = :tenantId"
+            + " and lease_id = :leaseId and status = 'RUNNING' and deleted_on is null")
+    Mono<Integer> extendLease(String tenantId, UUID leaseId, Instant expiresOn);
+
+    @Modifying
+    @Query("update t_task set status = :status, lease_id = null, lease_expires_on = null, modified_on = :now"
+            + " where ta_id in (:taskIds)")
+    Mono<Integer> endLease(String status, Instant now, Collection<Long> taskIds);
+
+    @Query("select * from t_task where status = 'RUNNING' and lease_expires_on < :now"
+            + " order by ta_id limit :limit for update")
+    Flux<Task> lockExpiredLeases(Instant now, int limit);
+
+    @Query("select * from t_task where status = 'PENDING' and deleted_on is null and due_on < :until"
+            + " order by due_on, ta_id limit :limit")
+    Flux<Task> findDueBefore(Instant until, int limit);
+
+    @Query("select * from t_task where status = 'PENDING' and deleted_on is null and due_on < :until"
+            + " and (due_on > :afterDueOn or (due_on = :afterDueOn and ta_id > :afterId))"
+            + " order by due_on, ta_id limit :limit")
+    Flux<Task> findDueBeforeAfter(Instant until, Instant afterDueOn, long afterId, int limit);
+
+    @Query("select * from t_task where status = 'PENDING' and deleted_on is null and due_on < :until"
+            + " and coalesce(modified_on, created_on) >= :since and ta_id > :afterId order by ta_id limit :limit")
+    Flux<Task> findChangedDueBefore(Instant until, Instant since, long afterId, int limit);
+
+    @Modifying
+    @Query("update t_task set status = :status, due_on = coalesce(:nextDueOn, due_on), modified_on = :now"
+            + " where tenant_id = :tenantId and guid = :guid and due_on = :dueOn and status = 'PENDING'"
+            + " and deleted_on is null")
+    Mono<Integer> fireDue(String tenantId, UUID guid, Instant dueOn, String status, Instant nextDueOn, Instant now);
+
+    @Modifying
+    @Query("update t_task set deleted_on = :now, lease_id = null, lease_expires_on = null"
+            + " where ta_id = :taskId and deleted_on is null")
+    Mono<Integer> markDeleted(long taskId, Instant now);
+
+    @Modifying
+    @Query("update t_task set deleted_on = null, modified_on = :now"
+            + " where tenant_id = :tenantId and guid = :guid and deleted_on >= :cutoff")
+    Mono<Integer> restoreDeleted(String tenantId, UUID guid, Instant cutoff, Instant now);
+
+    @Modifying
+    @Query("delete from t_task where ta_id in (:taskIds)")
+    Mono<Integer> purge(Collection<Long> taskIds);
+
 }
@@ -29,6 +29,8 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
 import io.jrb.labs.tasksms.model.Projection;
 import io.jrb.labs.tasksms.model.Task;
+import io.jrb.labs.tasksms.model.TaskStatus;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Singular;
 import lombok.Value;
@@ -39,6 +41,7 @@ import java.util.UUID;
 
 @Value
 @Builder(toBuilder = true)
+@AllArgsConstructor
 @JsonDeserialize(builder = TaskResource.TaskResourceBuilder.class)
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 public class TaskResource {
@@ -52,6 +55,15 @@ public class TaskResource {
     @JsonView(Projection.Detail.class)
     String description;
 
+    @JsonView(Projection.Summary.class)
+    TaskStatus status;
+
+    @JsonView(Projection.Detail.class)
+    Instant dueOn;
+
+    @JsonView(Projection.Detail.class)
+    String recurrence;
+
     @JsonView(Projection.Detail.class)
     String createdBy;
 
@@ -77,6 +89,9 @@ public class TaskResource {
                 .guid(task.getGuid())
                 .name(task.getName())
                 .description(task.getDescription())
+                .status(task.getStatus())
+                .dueOn(task.getDueOn())
+                .recurrence(task.getRecurrence())
                 .createdBy(task.getCreatedBy())
                 .createdOn(task.getCreatedOn())
                 .modifiedBy(task.getModifiedBy())
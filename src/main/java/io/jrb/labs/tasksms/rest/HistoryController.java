@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.model.RollupBucket;
+import io.jrb.labs.tasksms.resource.HistoryStatsResource;
+import io.jrb.labs.tasksms.service.HistoryStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/history")
+@ConditionalOnProperty(name = "tasks.storage.engine", havingValue = "r2dbc", matchIfMissing = true)
+@Slf4j
+public class HistoryController {
+
+    private static final Duration DEFAULT_WINDOW = Duration.ofHours(1);
+
+    private final HistoryStatsService historyStatsService;
+
+    public HistoryController(final HistoryStatsService historyStatsService) {
+        this.historyStatsService = historyStatsService;
+    }
+
+    @GetMapping("/_stats")
+    public Flux<HistoryStatsResource> findStats(
+            @RequestParam(name = "from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final Instant from,
+            @RequestParam(name = "to", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final Instant to,
+            @RequestParam(name = "bucket", defaultValue = "MINUTE") final RollupBucket bucket,
+            @RequestParam(name = "entityType", required = false) final EntityType entityType
+    ) {
+        final Instant end = Optional.ofNullable(to).orElseGet(Instant::now);
+        final Instant start = Optional.ofNullable(from).orElseGet(() -> end.minus(DEFAULT_WINDOW));
+        if (!start.isBefore(end)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must be before 'to'"));
+        }
+        return historyStatsService.findStats(bucket, start, end, entityType);
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+@Component
+@Slf4j
+public class RequestDeadlineWebFilter implements WebFilter {
+
+    public static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private static final Duration BACKSTOP_GRACE = Duration.ofMillis(50);
+
+    private static final PathPattern API_PATTERN = PathPatternParser.defaultInstance.parse("/api/**");
+
+    private final Duration defaultTimeout;
+    private final Duration maxTimeout;
+    private final List<EndpointTimeout> endpointTimeouts;
+    private final MeterRegistry meterRegistry;
+
+    public RequestDeadlineWebFilter(
+            @Value("${tasks.web.deadline.default:30s}") final Duration defaultTimeout,
+            @Value("${tasks.web.deadline.max:5m}") final Duration maxTimeout,
+            @Value("${tasks.web.deadline.endpoints:}") final String[] endpoints,
+            final MeterRegistry meterRegistry
+    ) {
+        this.defaultTimeout = defaultTimeout;
+        this.maxTimeout = maxTimeout;
+        this.endpointTimeouts = Arrays.stream(endpoints)
+                .map(String::trim)
+                .filter(endpoint -> !endpoint.isEmpty())
+                .map(RequestDeadlineWebFilter::parseEndpoint)
+                .collect(Collectors.toList());
+        this.meterRegistry = meterRegistry;
+        log.info("Request deadlines default to {} (max {}) with overrides {}",
+                defaultTimeout, maxTimeout, endpointTimeouts);
+    }
+
+    @Override
+    public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain) {
+        final PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+        if (!API_PATTERN.matches(path)) {
+            return chain.filter(exchange);
+        }
+        final Duration timeout;
+        try {
+            timeout = resolveTimeout(exchange, path);
+        } catch (final IllegalArgumentException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Invalid " + REQUEST_TIMEOUT_HEADER + " header", e));
+        }
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        final LongSupplier queryDeadline = () -> exchange.getResponse().isCommitted()
+                ? System.nanoTime() + timeout.toNanos()
+                : deadline;
+        final Mono<Long> backstop = Mono.delay(timeout.plus(BACKSTOP_GRACE))
+                .filter(tick -> !exchange.getResponse().isCommitted())
+                .switchIfEmpty(Mono.never());
+        return chain.filter(exchange)
+                .timeout(backstop)
+                .onErrorMap(TimeoutException.class, e -> {
+                    meterRegistry.counter("tasks.web.deadline.exceeded",
+                            "method", exchange.getRequest().getMethodValue(),
+                            "uri", matchedPattern(exchange))
+                            .increment();
+                    if (exchange.getResponse().isCommitted()) {
+                        return e;
+                    }
+                    return new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT,
+                            "Request deadline of " + timeout.toMillis() + "ms exceeded", e);
+                })
+                .contextWrite(context -> context.put(ShardRouter.DEADLINE_KEY, queryDeadline));
+    }
+
+    private Duration resolveTimeout(final ServerWebExchange exchange, final PathContainer path) {
+        final String header = exchange.getRequest().getHeaders().getFirst(REQUEST_TIMEOUT_HEADER);
+        if (header != null) {
+            final Duration requested = DurationStyle.detectAndParse(header.trim(), ChronoUnit.MILLIS);
+            if (requested.isNegative() || requested.isZero()) {
+                throw new IllegalArgumentException("Request timeout must be positive: " + header);
+            }
+            return (requested.compareTo(maxTimeout) > 0) ? maxTimeout : requested;
+        }
+        return endpointTimeouts.stream()
+                .filter(endpoint -> endpoint.getPattern().matches(path))
+                .map(EndpointTimeout::getTimeout)
+                .findFirst()
+                .orElse(defaultTimeout);
+    }
+
+    private static String matchedPattern(final ServerWebExchange exchange) {
+        return Optional.ofNullable(exchange.<PathPattern>getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE))
+                .map(PathPattern::getPatternString)
+                .orElse("UNKNOWN");
+    }
+
+    private static EndpointTimeout parseEndpoint(final String endpoint) {
+        final int separator = endpoint.lastIndexOf('=');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Expected <path-pattern>=<duration> but found: " + endpoint);
+        }
+        return new EndpointTimeout(
+                PathPatternParser.defaultInstance.parse(endpoint.substring(0, separator).trim()),
+                DurationStyle.detectAndParse(endpoint.substring(separator + 1).trim()));
+    }
+
+    @lombok.Value
+    private static class EndpointTimeout {
+        PathPattern pattern;
+        Duration timeout;
+
+        @Override
+        public String toString() {
+            return pattern.getPatternString() + "=" + timeout;
+        }
+    }
+
+}
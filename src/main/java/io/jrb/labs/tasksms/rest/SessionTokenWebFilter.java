@@ -0,0 +1,136 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+@Slf4j
+@Component
+public class SessionTokenWebFilter implements WebFilter {
+
+    public static final String SESSION_TOKEN_HEADER = "X-Session-Token";
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final Set<HttpMethod> MUTATING_METHODS =
+            EnumSet.of(HttpMethod.DELETE, HttpMethod.PATCH, HttpMethod.POST, HttpMethod.PUT);
+
+    private static final PathPattern READ_ONLY_POST_PATTERN =
+            PathPatternParser.defaultInstance.parse("/api/task/_mget");
+
+    private final long windowMillis;
+    private final SecretKeySpec key;
+
+    public SessionTokenWebFilter(
+            @Value("${tasks.storage.r2dbc.read-your-writes-window:5s}") final Duration window,
+            @Value("${tasks.storage.r2dbc.session-token-secret:}") final String secret
+    ) {
+        this.windowMillis = window.toMillis();
+        final byte[] keyBytes;
+        if (secret.isBlank()) {
+            log.info("No session token secret configured; session tokens are only honoured by this instance");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, MAC_ALGORITHM);
+    }
+
+    @Override
+    public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain) {
+        if (isMutation(exchange.getRequest())) {
+            exchange.getResponse().beforeCommit(() -> Mono.fromRunnable(() -> exchange.getResponse().getHeaders()
+                    .set(SESSION_TOKEN_HEADER, issueToken(System.currentTimeMillis()))));
+        }
+        final long now = System.currentTimeMillis();
+        final boolean pinned = Optional.ofNullable(exchange.getRequest().getHeaders().getFirst(SESSION_TOKEN_HEADER))
+                .flatMap(this::verifyToken)
+                .map(writtenAt -> writtenAt <= now && now - writtenAt < windowMillis)
+                .orElse(false);
+        return pinned
+                ? chain.filter(exchange).contextWrite(context -> context.put(ShardRouter.PRIMARY_KEY, true))
+                : chain.filter(exchange);
+    }
+
+    private static boolean isMutation(final ServerHttpRequest request) {
+        return MUTATING_METHODS.contains(request.getMethod())
+                && !READ_ONLY_POST_PATTERN.matches(request.getPath().pathWithinApplication());
+    }
+
+    String issueToken(final long writtenAt) {
+        final String timestamp = String.valueOf(writtenAt);
+        return timestamp + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(sign(timestamp));
+    }
+
+    private Optional<Long> verifyToken(final String token) {
+        final int separator = token.indexOf('.');
+        if (separator < 1) {
+            return Optional.empty();
+        }
+        final String timestamp = token.substring(0, separator);
+        try {
+            final byte[] signature = Base64.getUrlDecoder().decode(token.substring(separator + 1).trim());
+            return MessageDigest.isEqual(signature, sign(timestamp))
+                    ? Optional.of(Long.parseLong(timestamp))
+                    : Optional.empty();
+        } catch (final IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private byte[] sign(final String timestamp) {
+        try {
+            final Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(timestamp.getBytes(StandardCharsets.UTF_8));
+        } catch (final GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to sign session token", e);
+        }
+    }
+
+}
@@ -25,10 +25,18 @@ package io.jrb.labs.tasksms.rest;
 
 import com.fasterxml.jackson.annotation.JsonView;
 import com.github.fge.jsonpatch.JsonPatch;
+import io.jrb.labs.tasksms.idempotency.IdempotentRequestCoordinator;
+import io.jrb.labs.tasksms.model.LookupValueType;
 import io.jrb.labs.tasksms.model.Projection;
+import io.jrb.labs.tasksms.model.TaskStatus;
+import io.jrb.labs.tasksms.model.TaskTransition;
+import io.jrb.labs.tasksms.resource.TaskGuidsResource;
 import io.jrb.labs.tasksms.resource.TaskResource;
+import io.jrb.labs.tasksms.resource.TaskTableResource;
 import io.jrb.labs.tasksms.service.TaskService;
+import io.jrb.labs.tasksms.tenant.TenantContext;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -37,10 +45,12 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -51,16 +61,37 @@ import java.util.UUID;
 @Slf4j
 public class TaskController {
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final TaskService taskService;
+    private final IdempotentRequestCoordinator idempotentRequestCoordinator;
+    private final int maxBatchGuids;
+    private final int maxPageSize;
 
-    public TaskController(final TaskService taskService) {
+    public TaskController(
+            final TaskService taskService,
+            final IdempotentRequestCoordinator idempotentRequestCoordinator,
+            @Value("${tasks.api.max-batch-guids:1000}") final int maxBatchGuids,
+            @Value("${tasks.api.max-page-size:1000}") final int maxPageSize
+    ) {
         this.taskService = taskService;
+        this.idempotentRequestCoordinator = idempotentRequestCoordinator;
+        this.maxBatchGuids = maxBatchGuids;
+        this.maxPageSize = maxPageSize;
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public Mono<TaskResource> createTask(@RequestBody final TaskResource thing) {
-        return taskService.createTask(thing);
+    public Mono<TaskResource> createTask(
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) final String idempotencyKey,
+            @RequestBody final TaskResource thing
+    ) {
+        if (idempotencyKey == null) {
+            return taskService.createTask(thing);
+        }
+        return TenantContext.current()
+                .flatMap(tenantId -> idempotentRequestCoordinator.execute(tenantId + ":createTask", idempotencyKey,
+                        thing, TaskResource.class, () -> taskService.createTask(thing)));
     }
 
     @DeleteMapping("/{taskGuid}")
@@ -78,10 +109,63 @@ public class TaskController {
                 .map(resource -> wrapWithView(resource, projection));
     }
 
+    @PostMapping("/_mget")
+    public Mono<MappingJacksonValue> getTasksByGuids(
+            @RequestBody final TaskGuidsResource taskGuids,
+            @RequestParam(name = "projection", defaultValue = "DETAILS") final Projection projection
+    ) {
+        if (taskGuids.getGuids().size() > maxBatchGuids) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxBatchGuids + " guids may be requested at once"));
+        }
+        return taskService.findTasksByGuids(taskGuids.getGuids(), projection)
+                .collectList()
+                .map(resources -> wrapWithView(resources, projection));
+    }
+
     @GetMapping
     @JsonView(Projection.Summary.class)
-    public Flux<TaskResource> listTasks() {
-        return taskService.listAllTasks();
+    public Flux<TaskResource> listTasks(
+            @RequestParam(name = "status", required = false) final TaskStatus status,
+            @RequestParam(name = "group", required = false) final String group,
+            @RequestParam(name = "tag", required = false) final String tag,
+            @RequestParam(name = "after", required = false) final UUID after,
+            @RequestParam(name = "limit", defaultValue = "100") final int limit
+    ) {
+        return findTasks(status, group, tag, after, limit);
+    }
+
+    @GetMapping(produces = TaskTableResource.MEDIA_TYPE)
+    public Mono<TaskTableResource> listTasksColumnar(
+            @RequestParam(name = "status", required = false) final TaskStatus status,
+            @RequestParam(name = "group", required = false) final String group,
+            @RequestParam(name = "tag", required = false) final String tag,
+            @RequestParam(name = "after", required = false) final UUID after,
+            @RequestParam(name = "limit", defaultValue = "100") final int limit
+    ) {
+        return findTasks(status, group, tag, after, limit)
+                .collectList()
+                .map(TaskTableResource::fromResources);
+    }
+
+    @PostMapping("/{taskGuid}/cancel")
+    public Mono<TaskResource> cancelTask(@PathVariable final UUID taskGuid) {
+        return taskService.transitionTask(taskGuid, TaskTransition.CANCEL);
+    }
+
+    @PostMapping("/{taskGuid}/restore")
+    public Mono<TaskResource> restoreTask(@PathVariable final UUID taskGuid) {
+        return taskService.restoreTask(taskGuid);
+    }
+
+    @PostMapping("/{taskGuid}/start")
+    public Mono<TaskResource> startTask(@PathVariable final UUID taskGuid) {
+        return taskService.transitionTask(taskGuid, TaskTransition.START);
+    }
+
+    @PostMapping("/{taskGuid}/stop")
+    public Mono<TaskResource> stopTask(@PathVariable final UUID taskGuid) {
+        return taskService.transitionTask(taskGuid, TaskTransition.STOP);
     }
 
     @PatchMapping("/{taskGuid}")
@@ -92,6 +176,33 @@ public class TaskController {
         return taskService.updateTask(taskGuid, taskPatch);
     }
 
+    private Flux<TaskResource> findTasks(
+            final TaskStatus status,
+            final String group,
+            final String tag,
+            final UUID after,
+            final int limit
+    ) {
+        if (limit < 1) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "'limit' must be at least 1"));
+        } else if (after != null && status == null) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "'after' is only supported together with 'status'"));
+        }
+        final int pageSize = Math.min(limit, maxPageSize);
+        final Flux<TaskResource> tasks;
+        if (status != null) {
+            tasks = taskService.listTasksByStatus(status, after, pageSize);
+        } else if (group != null) {
+            tasks = taskService.listTasksByLookupValue(LookupValueType.GROUP, group);
+        } else if (tag != null) {
+            tasks = taskService.listTasksByLookupValue(LookupValueType.TAG, tag);
+        } else {
+            tasks = taskService.listAllTasks();
+        }
+        return tasks.take(pageSize);
+    }
+
     private <R> MappingJacksonValue wrapWithView(final R resource, final Projection projection) {
         final MappingJacksonValue result = new MappingJacksonValue(resource);
         result.setSerializationView(projection.getView());
@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import io.jrb.labs.tasksms.model.Projection;
+import io.jrb.labs.tasksms.resource.TaskLeaseResource;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import io.jrb.labs.tasksms.service.TaskQueueService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/task")
+@ConditionalOnProperty(name = "tasks.storage.engine", havingValue = "r2dbc", matchIfMissing = true)
+@Slf4j
+public class TaskQueueController {
+
+    private final TaskQueueService taskQueueService;
+
+    public TaskQueueController(final TaskQueueService taskQueueService) {
+        this.taskQueueService = taskQueueService;
+    }
+
+    @PostMapping("/_claim")
+    @JsonView(Projection.Detail.class)
+    public Mono<TaskLeaseResource> claimTasks(
+            @RequestParam(name = "limit", defaultValue = "1") final int limit,
+            @RequestParam(name = "lease", defaultValue = "${tasks.queue.default-lease:30s}") final String lease
+    ) {
+        if (limit < 1) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "'limit' must be at least 1"));
+        }
+        return parseLease(lease).flatMap(duration -> taskQueueService.claimTasks(limit, duration));
+    }
+
+    @PostMapping("/_lease/{leaseId}/complete")
+    @JsonView(Projection.Detail.class)
+    public Flux<TaskResource> completeTasks(
+            @PathVariable final UUID leaseId,
+            @RequestParam(name = "guid", required = false) final List<UUID> guids
+    ) {
+        return taskQueueService.completeTasks(leaseId, guids != null ? guids : Collections.emptyList());
+    }
+
+    @PostMapping("/_lease/{leaseId}/heartbeat")
+    @JsonView(Projection.Detail.class)
+    public Mono<TaskLeaseResource> extendLease(
+            @PathVariable final UUID leaseId,
+            @RequestParam(name = "lease", defaultValue = "${tasks.queue.default-lease:30s}") final String lease
+    ) {
+        return parseLease(lease).flatMap(duration -> taskQueueService.extendLease(leaseId, duration));
+    }
+
+    @PostMapping("/_lease/{leaseId}/release")
+    @JsonView(Projection.Detail.class)
+    public Flux<TaskResource> releaseTasks(
+            @PathVariable final UUID leaseId,
+            @RequestParam(name = "guid", required = false) final List<UUID> guids
+    ) {
+        return taskQueueService.releaseTasks(leaseId, guids != null ? guids : Collections.emptyList());
+    }
+
+    private Mono<Duration> parseLease(final String lease) {
+        final Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(lease);
+        } catch (final IllegalArgumentException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid lease: " + lease, e));
+        }
+        if (duration.isNegative() || duration.isZero()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "'lease' must be positive"));
+        }
+        return Mono.just(duration);
+    }
+
+}
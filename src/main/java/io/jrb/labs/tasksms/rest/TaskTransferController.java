@@ -0,0 +1,69 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import io.jrb.labs.tasksms.model.TransferFormat;
+import io.jrb.labs.tasksms.resource.TaskImportResource;
+import io.jrb.labs.tasksms.service.TaskTransferService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/task")
+@ConditionalOnProperty(name = "tasks.storage.engine", havingValue = "r2dbc", matchIfMissing = true)
+@Slf4j
+public class TaskTransferController {
+
+    private final TaskTransferService taskTransferService;
+
+    public TaskTransferController(final TaskTransferService taskTransferService) {
+        this.taskTransferService = taskTransferService;
+    }
+
+    @GetMapping("/_export")
+    public Mono<Void> exportTasks(
+            @RequestParam(name = "format", defaultValue = "NDJSON") final TransferFormat format,
+            final ServerHttpResponse response
+    ) {
+        response.getHeaders().setContentType(format.getMediaType());
+        return response.writeWith(taskTransferService.exportTasks(format, response.bufferFactory()));
+    }
+
+    @PostMapping("/_import")
+    public Mono<TaskImportResource> importTasks(
+            @RequestParam(name = "format", defaultValue = "NDJSON") final TransferFormat format,
+            final ServerHttpRequest request
+    ) {
+        return taskTransferService.importTasks(format, request.getBody());
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import io.jrb.labs.tasksms.tenant.TenantContext;
+import io.jrb.labs.tasksms.tenant.TenantQuotas;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@Component
+@Slf4j
+public class TenantWebFilter implements WebFilter {
+
+    public static final String TENANT_HEADER = "X-Tenant-Id";
+
+    private static final Pattern TENANT_PATTERN = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,63}");
+
+    private static final PathPattern API_PATTERN = PathPatternParser.defaultInstance.parse("/api/**");
+
+    private final TenantQuotas tenantQuotas;
+    private final boolean required;
+    private final Set<String> tenants;
+
+    public TenantWebFilter(
+            final TenantQuotas tenantQuotas,
+            @Value("${tasks.tenancy.required:false}") final boolean required,
+            @Value("${tasks.tenancy.tenants:}") final String[] tenants
+    ) {
+        this.tenantQuotas = tenantQuotas;
+        this.required = required;
+        this.tenants = Arrays.stream(tenants)
+                .map(String::trim)
+                .filter(tenant -> !tenant.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        log.info("Resolving tenants from {} (required={}, tenants={})", TENANT_HEADER, required,
+                this.tenants.isEmpty() ? "any" : this.tenants);
+    }
+
+    @Override
+    public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain) {
+        final PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+        if (!API_PATTERN.matches(path)) {
+            return chain.filter(exchange);
+        }
+        final String header = exchange.getRequest().getHeaders().getFirst(TENANT_HEADER);
+        final String tenantId;
+        if (header == null || header.isBlank()) {
+            if (required) {
+                return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Missing " + TENANT_HEADER + " header"));
+            }
+            tenantId = TenantContext.DEFAULT_TENANT;
+        } else {
+            tenantId = header.trim();
+            if (!TENANT_PATTERN.matcher(tenantId).matches()) {
+                return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Invalid " + TENANT_HEADER + " header"));
+            } else if (!tenants.isEmpty() && !tenants.contains(tenantId)) {
+                return Mono.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "Unknown tenant: " + tenantId));
+            }
+        }
+        if (!tenantQuotas.tryAcquireRequest(tenantId)) {
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+            return Mono.error(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Tenant " + tenantId + " has exceeded its request quota"));
+        }
+        return chain.filter(exchange)
+                .contextWrite(TenantContext.of(tenantId));
+    }
+
+}
@@ -23,21 +23,22 @@
  */
 package io.jrb.labs.tasksms.rest;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cloud.context.config.annotation.RefreshScope;
+import io.jrb.labs.tasksms.settings.ConfigSnapshotHolder;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-@RefreshScope
 @RestController
 public class TestController {
 
-    @Value("${message:Hello default}")
-    private String message;
+    private final ConfigSnapshotHolder configSnapshotHolder;
+
+    public TestController(final ConfigSnapshotHolder configSnapshotHolder) {
+        this.configSnapshotHolder = configSnapshotHolder;
+    }
 
     @RequestMapping("/message")
     String getMessage() {
-        return this.message;
+        return configSnapshotHolder.current().get("message", "Hello default");
     }
 
 }
@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.schedule;
+
+import io.jrb.labs.tasksms.repository.SchedulerLeaseRepository;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+@Slf4j
+public class LeaderLease {
+
+    private final SchedulerLeaseRepository schedulerLeaseRepository;
+    private final ShardRouter shardRouter;
+    private final String name;
+    private final Duration duration;
+    private final String owner;
+
+    private volatile boolean held;
+
+    public LeaderLease(
+            final SchedulerLeaseRepository schedulerLeaseRepository,
+            final ShardRouter shardRouter,
+            final String name,
+            final Duration duration
+    ) {
+        this.schedulerLeaseRepository = schedulerLeaseRepository;
+        this.shardRouter = shardRouter;
+        this.name = name;
+        this.duration = duration;
+        this.owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public Duration getRenewInterval() {
+        return duration.dividedBy(3);
+    }
+
+    public boolean isHeld() {
+        return held;
+    }
+
+    public Mono<Void> renew(final Supplier<Mono<Void>> onAcquired, final Runnable onLost) {
+        final Instant now = Instant.now();
+        return shardRouter.onShard(0, schedulerLeaseRepository.tryAcquire(name, owner, now, now.plus(duration)))
+                .flatMap(acquired -> {
+                    if (acquired && !held) {
+                        log.info("Acquired {} lease as {}", name, owner);
+                        held = true;
+                        return onAcquired.get();
+                    } else if (!acquired && held) {
+                        log.info("Lost {} lease as {}", name, owner);
+                        held = false;
+                        onLost.run();
+                    }
+                    return Mono.empty();
+                });
+    }
+
+    public void release() {
+        if (held) {
+            held = false;
+            shardRouter.onShard(0, schedulerLeaseRepository.release(name, owner))
+                    .onErrorResume(e -> Mono.empty())
+                    .block(Duration.ofSeconds(5));
+        }
+    }
+
+}
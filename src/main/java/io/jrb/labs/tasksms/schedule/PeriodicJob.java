@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.schedule;
+
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+@Slf4j
+public final class PeriodicJob {
+
+    private final String description;
+    private final Duration initialDelay;
+    private final Duration interval;
+    private final Supplier<? extends Publisher<?>> warmUp;
+    private final Supplier<? extends Publisher<?>> job;
+
+    private Disposable subscription;
+
+    private PeriodicJob(
+            final String description,
+            final Duration initialDelay,
+            final Duration interval,
+            final Supplier<? extends Publisher<?>> warmUp,
+            final Supplier<? extends Publisher<?>> job
+    ) {
+        this.description = description;
+        this.initialDelay = initialDelay;
+        this.interval = interval;
+        this.warmUp = warmUp;
+        this.job = job;
+    }
+
+    public static PeriodicJob every(
+            final Duration interval,
+            final String description,
+            final Supplier<? extends Publisher<?>> job
+    ) {
+        return new PeriodicJob(description, interval, interval, Mono::empty, job);
+    }
+
+    public PeriodicJob startingAfter(final Duration initialDelay) {
+        return new PeriodicJob(description, initialDelay, interval, warmUp, job);
+    }
+
+    public PeriodicJob warmingUpWith(final Supplier<? extends Publisher<?>> warmUp) {
+        return new PeriodicJob(description, initialDelay, interval, warmUp, job);
+    }
+
+    public synchronized void start() {
+        if (subscription == null) {
+            log.info("Starting periodic job to {} every {}", description, interval);
+            subscription = guard(warmUp)
+                    .thenMany(Flux.interval(initialDelay, interval))
+                    .onBackpressureDrop()
+                    .concatMap(tick -> guard(job))
+                    .subscribe();
+        }
+    }
+
+    public synchronized void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+            subscription = null;
+        }
+    }
+
+    private Flux<Object> guard(final Supplier<? extends Publisher<?>> work) {
+        return Flux.<Object>defer(() -> Flux.from(work.get()))
+                .onErrorResume(e -> {
+                    log.warn("Unable to {}", description, e);
+                    return Mono.empty();
+                });
+    }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.schedule;
+
+import io.jrb.labs.tasksms.model.Task;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Value
+public class ScheduledTask {
+
+    UUID guid;
+    String tenantId;
+    Instant dueOn;
+    String recurrence;
+
+    public static ScheduledTask of(final Task task) {
+        return new ScheduledTask(task.getGuid(), task.getTenantId(), task.getDueOn(), task.getRecurrence());
+    }
+
+    public static ScheduledTask of(final String tenantId, final TaskResource task) {
+        return new ScheduledTask(task.getGuid(), tenantId, task.getDueOn(), task.getRecurrence());
+    }
+
+}
@@ -0,0 +1,254 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.schedule;
+
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.model.HistoryType;
+import io.jrb.labs.tasksms.model.Task;
+import io.jrb.labs.tasksms.model.TaskStatus;
+import io.jrb.labs.tasksms.repository.SchedulerLeaseRepository;
+import io.jrb.labs.tasksms.repository.TaskRepository;
+import io.jrb.labs.tasksms.service.EntityHistoryService;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import io.jrb.labs.tasksms.tenant.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.scheduling.support.CronExpression;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+public class TaskScheduler extends PeriodicJobSupport {
+
+    private static final String LEASE_NAME = "task-scheduler";
+
+    private final TaskRepository taskRepository;
+    private final EntityHistoryService entityHistoryService;
+    private final ShardRouter shardRouter;
+    private final Duration tick;
+    private final Duration horizon;
+    private final Duration scanInterval;
+    private final Duration deltaInterval;
+    private final int chunkSize;
+    private final int fireConcurrency;
+    private final LeaderLease lease;
+    private final TimerWheel<ScheduledTask> wheel;
+    private final Map<UUID, Instant> scheduled;
+    private final Counter firedCounter;
+    private final Counter skippedCounter;
+
+    private volatile Instant loadedUntil;
+    private volatile Instant changedSince;
+
+    public TaskScheduler(
+            final TaskRepository taskRepository,
+            final EntityHistoryService entityHistoryService,
+            final SchedulerLeaseRepository schedulerLeaseRepository,
+            final ShardRouter shardRouter,
+            final MeterRegistry meterRegistry,
+            final Duration tick,
+            final int wheelSize,
+            final Duration horizon,
+            final Duration scanInterval,
+            final Duration deltaInterval,
+            final Duration leaseDuration,
+            final int chunkSize,
+            final int fireConcurrency
+    ) {
+        this.taskRepository = taskRepository;
+        this.entityHistoryService = entityHistoryService;
+        this.shardRouter = shardRouter;
+        this.tick = tick;
+        this.horizon = horizon;
+        this.scanInterval = scanInterval;
+        this.deltaInterval = deltaInterval;
+        this.chunkSize = chunkSize;
+        this.fireConcurrency = fireConcurrency;
+        this.lease = new LeaderLease(schedulerLeaseRepository, shardRouter, LEASE_NAME, leaseDuration);
+        this.wheel = new TimerWheel<>(tick.toMillis(), wheelSize, System.currentTimeMillis());
+        this.scheduled = new ConcurrentHashMap<>();
+        this.loadedUntil = Instant.EPOCH;
+        this.changedSince = Instant.EPOCH;
+        this.firedCounter = meterRegistry.counter("tasks.scheduler.fired");
+        this.skippedCounter = meterRegistry.counter("tasks.scheduler.skipped");
+        Gauge.builder("tasks.scheduler.pending", wheel, TimerWheel::size).register(meterRegistry);
+        Gauge.builder("tasks.scheduler.leader", lease, leaderLease -> leaderLease.isHeld() ? 1 : 0)
+                .register(meterRegistry);
+        register(PeriodicJob.every(lease.getRenewInterval(), "renew task scheduler lease",
+                () -> lease.renew(this::loadWindow, this::unloadWindow))
+                .startingAfter(Duration.ZERO));
+        register(PeriodicJob.every(scanInterval, "load scheduled tasks",
+                () -> lease.isHeld() ? loadWindow() : Mono.empty()));
+        register(PeriodicJob.every(deltaInterval, "load changed scheduled tasks",
+                () -> lease.isHeld() && loadedUntil.isAfter(Instant.EPOCH) ? loadChanges() : Mono.empty()));
+        register(PeriodicJob.every(tick, "fire scheduled tasks", () -> Flux
+                .fromIterable(wheel.advance(System.currentTimeMillis()))
+                .flatMap(this::fire, fireConcurrency)));
+    }
+
+    public static Instant nextOccurrence(final String recurrence, final Instant after) {
+        final ZonedDateTime next = CronExpression.parse(recurrence)
+                .next(ZonedDateTime.ofInstant(after, ZoneOffset.UTC));
+        if (next == null) {
+            throw new IllegalArgumentException("Recurrence never fires after " + after + ": " + recurrence);
+        }
+        return next.toInstant();
+    }
+
+    public void schedule(final ScheduledTask task) {
+        final Instant dueOn = task.getDueOn();
+        if (!lease.isHeld() || dueOn == null || !dueOn.isBefore(loadedUntil)) {
+            return;
+        }
+        if (!dueOn.equals(scheduled.put(task.getGuid(), dueOn))) {
+            wheel.schedule(dueOn.toEpochMilli(), task);
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(final ApplicationReadyEvent event) {
+        log.info("Scheduling due tasks as {} with {} ticks, loading {} ahead every {} and changes every {}",
+                lease.getOwner(), tick, horizon, scanInterval, deltaInterval);
+        super.onApplicationEvent(event);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        super.destroy();
+        lease.release();
+    }
+
+    private void unloadWindow() {
+        loadedUntil = Instant.EPOCH;
+        wheel.clear(System.currentTimeMillis());
+        scheduled.clear();
+    }
+
+    private Mono<Void> loadWindow() {
+        final Instant started = Instant.now();
+        final Instant until = started.plus(horizon);
+        return Flux.fromIterable(shardRouter.shards())
+                .concatMap(shard -> shardRouter.onShard(shard, loadShard(until)))
+                .reduce(0, Integer::sum)
+                .doOnNext(loaded -> {
+                    loadedUntil = until;
+                    changedSince = started.minus(deltaInterval);
+                    log.debug("Loaded {} tasks due before {}", loaded, until);
+                })
+                .then();
+    }
+
+    Mono<Void> loadChanges() {
+        final Instant started = Instant.now();
+        final Instant until = loadedUntil;
+        final Instant since = changedSince;
+        return Flux.fromIterable(shardRouter.shards())
+                .concatMap(shard -> shardRouter.onShard(shard, loadChangedShard(until, since)))
+                .reduce(0, Integer::sum)
+                .doOnNext(loaded -> {
+                    changedSince = started.minus(deltaInterval);
+                    if (loaded > 0) {
+                        log.debug("Loaded {} tasks changed since {} and due before {}", loaded, since, until);
+                    }
+                })
+                .then();
+    }
+
+    private Mono<Integer> loadShard(final Instant until) {
+        return loadChunk(taskRepository.findDueBefore(until, chunkSize))
+                .expand(tasks -> {
+                    if (tasks.size() < chunkSize) {
+                        return Mono.empty();
+                    }
+                    final Task last = tasks.get(tasks.size() - 1);
+                    return loadChunk(taskRepository
+                            .findDueBeforeAfter(until, last.getDueOn(), last.getId(), chunkSize));
+                })
+                .map(List::size)
+                .reduce(0, Integer::sum);
+    }
+
+    private Mono<Integer> loadChangedShard(final Instant until, final Instant since) {
+        return loadChunk(taskRepository.findChangedDueBefore(until, since, 0L, chunkSize))
+                .expand(tasks -> (tasks.size() < chunkSize) ? Mono.empty() : loadChunk(taskRepository
+                        .findChangedDueBefore(until, since, tasks.get(tasks.size() - 1).getId(), chunkSize)))
+                .map(List::size)
+                .reduce(0, Integer::sum);
+    }
+
+    private Mono<List<Task>> loadChunk(final Flux<Task> chunk) {
+        return chunk.collectList()
+                .doOnNext(tasks -> tasks.forEach(task -> {
+                    final Instant dueOn = task.getDueOn();
+                    if (!dueOn.equals(scheduled.put(task.getGuid(), dueOn))) {
+                        wheel.schedule(dueOn.toEpochMilli(), ScheduledTask.of(task));
+                    }
+                }));
+    }
+
+    private Mono<Void> fire(final ScheduledTask task) {
+        if (!lease.isHeld()) {
+            return Mono.empty();
+        }
+        final Instant now = Instant.now();
+        final Instant nextDueOn = (task.getRecurrence() != null)
+                ? nextOccurrence(task.getRecurrence(), task.getDueOn().isAfter(now) ? task.getDueOn() : now)
+                : null;
+        final TaskStatus status = (nextDueOn != null) ? TaskStatus.PENDING : TaskStatus.RUNNING;
+        return shardRouter.routeTransactional(task.getGuid(), taskRepository
+                .fireDue(task.getTenantId(), task.getGuid(), task.getDueOn(), status.name(), nextDueOn, now)
+                .filter(updated -> updated > 0)
+                .flatMap(updated -> taskRepository.findByTenantIdAndGuid(task.getTenantId(), task.getGuid()))
+                .flatMap(entity -> entityHistoryService.record(EntityType.TASK, entity, HistoryType.STARTED)))
+                .contextWrite(TenantContext.of(task.getTenantId()))
+                .doOnNext(history -> firedCounter.increment())
+                .switchIfEmpty(Mono.fromRunnable(skippedCounter::increment))
+                .doFinally(signal -> scheduled.remove(task.getGuid(), task.getDueOn()))
+                .then(Mono.fromRunnable(() -> {
+                    if (nextDueOn != null) {
+                        schedule(new ScheduledTask(task.getGuid(), task.getTenantId(),
+                                nextDueOn.truncatedTo(ChronoUnit.MILLIS), task.getRecurrence()));
+                    }
+                }))
+                .onErrorResume(e -> {
+                    log.warn("Unable to fire scheduled task {} due {}", task.getGuid(), task.getDueOn(), e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+}
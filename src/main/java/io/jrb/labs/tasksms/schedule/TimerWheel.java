@@ -0,0 +1,150 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.schedule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TimerWheel<T> {
+
+    private final Level root;
+    private final List<T> expired;
+    private int size;
+
+    public TimerWheel(final long tickMillis, final int wheelSize, final long startMillis) {
+        this.root = new Level(tickMillis, wheelSize, startMillis - Math.floorMod(startMillis, tickMillis));
+        this.expired = new ArrayList<>();
+    }
+
+    public synchronized void schedule(final long deadlineMillis, final T item) {
+        size++;
+        insert(new Entry<>(deadlineMillis, item));
+    }
+
+    public synchronized List<T> advance(final long nowMillis) {
+        root.advanceTo(nowMillis - root.tickMillis + 1);
+        if (expired.isEmpty()) {
+            return List.of();
+        }
+        final List<T> due = new ArrayList<>(expired);
+        expired.clear();
+        size -= due.size();
+        return due;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear(final long nowMillis) {
+        root.reset(nowMillis - Math.floorMod(nowMillis, root.tickMillis));
+        expired.clear();
+        size = 0;
+    }
+
+    private void insert(final Entry<T> entry) {
+        if (!root.add(entry)) {
+            expired.add(entry.item);
+        }
+    }
+
+    private final class Level {
+
+        private final long tickMillis;
+        private final int wheelSize;
+        private final long intervalMillis;
+        private final List<List<Entry<T>>> buckets;
+        private long currentMillis;
+        private Level overflow;
+
+        private Level(final long tickMillis, final int wheelSize, final long currentMillis) {
+            this.tickMillis = tickMillis;
+            this.wheelSize = wheelSize;
+            this.intervalMillis = tickMillis * wheelSize;
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(null);
+            }
+            this.currentMillis = currentMillis;
+        }
+
+        private boolean add(final Entry<T> entry) {
+            if (entry.deadlineMillis < currentMillis + tickMillis) {
+                return false;
+            }
+            if (entry.deadlineMillis < currentMillis + intervalMillis) {
+                final int index = (int) Math.floorMod(entry.deadlineMillis / tickMillis, (long) wheelSize);
+                List<Entry<T>> bucket = buckets.get(index);
+                if (bucket == null) {
+                    bucket = new ArrayList<>();
+                    buckets.set(index, bucket);
+                }
+                bucket.add(entry);
+                return true;
+            }
+            if (overflow == null) {
+                final long overflowStart = currentMillis - Math.floorMod(currentMillis, intervalMillis);
+                overflow = new Level(intervalMillis, wheelSize, overflowStart);
+            }
+            return overflow.add(entry);
+        }
+
+        private void advanceTo(final long timeMillis) {
+            while (currentMillis + tickMillis <= timeMillis) {
+                currentMillis += tickMillis;
+                if (overflow != null) {
+                    overflow.advanceTo(currentMillis);
+                }
+                final int index = (int) Math.floorMod(currentMillis / tickMillis, (long) wheelSize);
+                final List<Entry<T>> bucket = buckets.get(index);
+                if (bucket != null) {
+                    buckets.set(index, null);
+                    bucket.forEach(TimerWheel.this::insert);
+                }
+            }
+        }
+
+        private void reset(final long startMillis) {
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.set(i, null);
+            }
+            currentMillis = startMillis;
+            overflow = null;
+        }
+
+    }
+
+    private static final class Entry<T> {
+
+        private final long deadlineMillis;
+        private final T item;
+
+        private Entry(final long deadlineMillis, final T item) {
+            this.deadlineMillis = deadlineMillis;
+            this.item = item;
+        }
+
+    }
+
+}
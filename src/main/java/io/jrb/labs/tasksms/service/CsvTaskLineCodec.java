@@ -0,0 +1,177 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.service;
+
+import io.jrb.labs.tasksms.model.TaskStatus;
+import io.jrb.labs.tasksms.resource.TaskResource;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+public class CsvTaskLineCodec implements TaskLineCodec {
+
+    private static final String HEADER =
+            "guid,name,description,status,dueOn,recurrence,createdBy,createdOn,modifiedBy,modifiedOn,groups,tags";
+
+    private static final int COLUMNS = 12;
+
+    private static final char LIST_SEPARATOR = ';';
+
+    private static final char LIST_ESCAPE = '\\';
+
+    @Override
+    public Optional<String> header() {
+        return Optional.of(HEADER);
+    }
+
+    @Override
+    public String encode(final TaskResource task) {
+        final StringBuilder line = new StringBuilder(128);
+        appendField(line, task.getGuid()).append(',');
+        appendField(line, task.getName()).append(',');
+        appendField(line, task.getDescription()).append(',');
+        appendField(line, task.getStatus()).append(',');
+        appendField(line, task.getDueOn()).append(',');
+        appendField(line, task.getRecurrence()).append(',');
+        appendField(line, task.getCreatedBy()).append(',');
+        appendField(line, task.getCreatedOn()).append(',');
+        appendField(line, task.getModifiedBy()).append(',');
+        appendField(line, task.getModifiedOn()).append(',');
+        appendField(line, joinList(task.getGroups())).append(',');
+        appendField(line, joinList(task.getTags()));
+        return line.toString();
+    }
+
+    @Override
+    public TaskResource decode(final String line) {
+        final List<String> fields = split(line);
+        if (fields.size() != COLUMNS) {
+            throw new IllegalArgumentException("Expected " + COLUMNS + " CSV columns but found " + fields.size());
+        }
+        return TaskResource.builder()
+                .guid(parse(fields.get(0), UUID::fromString))
+                .name(fields.get(1))
+                .description(fields.get(2))
+                .status(parse(fields.get(3), TaskStatus::valueOf))
+                .dueOn(parse(fields.get(4), Instant::parse))
+                .recurrence(fields.get(5))
+                .createdBy(fields.get(6))
+                .createdOn(parse(fields.get(7), Instant::parse))
+                .modifiedBy(fields.get(8))
+                .modifiedOn(parse(fields.get(9), Instant::parse))
+                .groups(parseList(fields.get(10)))
+                .tags(parseList(fields.get(11)))
+                .build();
+    }
+
+    private static StringBuilder appendField(final StringBuilder line, final Object value) {
+        if (value == null) {
+            return line;
+        }
+        final String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return line.append(text);
+        }
+        return line.append('"').append(text.replace("\"", "\"\"")).append('"');
+    }
+
+    private static <T> T parse(final String value, final Function<String, T> parser) {
+        return value == null ? null : parser.apply(value);
+    }
+
+    private static String joinList(final List<String> values) {
+        final StringBuilder joined = new StringBuilder();
+        for (final String value : values) {
+            if (joined.length() > 0) {
+                joined.append(LIST_SEPARATOR);
+            }
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                if (c == LIST_SEPARATOR || c == LIST_ESCAPE) {
+                    joined.append(LIST_ESCAPE);
+                }
+                joined.append(c);
+            }
+        }
+        return joined.toString();
+    }
+
+    private static List<String> parseList(final String value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        final List<String> values = new ArrayList<>();
+        final StringBuilder current = new StringBuilder();
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == LIST_ESCAPE && i + 1 < value.length()) {
+                current.append(value.charAt(++i));
+            } else if (c == LIST_SEPARATOR) {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private static List<String> split(final String line) {
+        final List<String> fields = new ArrayList<>(COLUMNS);
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean present = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                present = true;
+            } else if (c == ',') {
+                fields.add(present || field.length() > 0 ? field.toString() : null);
+                field.setLength(0);
+                present = false;
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(present || field.length() > 0 ? field.toString() : null);
+        return fields;
+    }
+
+}
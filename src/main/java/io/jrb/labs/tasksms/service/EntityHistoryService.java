@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.service;
+
+import io.jrb.labs.common.entity.Entity;
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.model.History;
+import io.jrb.labs.tasksms.model.HistoryType;
+import io.jrb.labs.tasksms.model.OutboxEvent;
+import io.jrb.labs.tasksms.repository.EntityBatchRepository;
+import io.jrb.labs.tasksms.repository.HistoryRepository;
+import io.jrb.labs.tasksms.repository.OutboxEventRepository;
+import io.jrb.labs.tasksms.tenant.TenantContext;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@ConditionalOnProperty(name = "tasks.storage.engine", havingValue = "r2dbc", matchIfMissing = true)
+public class EntityHistoryService {
+
+    private final HistoryRepository historyRepository;
+    private final OutboxEventRepository outboxEventRepository;
+    private final EntityBatchRepository entityBatchRepository;
+
+    public EntityHistoryService(
+            final HistoryRepository historyRepository,
+            final OutboxEventRepository outboxEventRepository,
+            final EntityBatchRepository entityBatchRepository
+    ) {
+        this.historyRepository = historyRepository;
+        this.outboxEventRepository = outboxEventRepository;
+        this.entityBatchRepository = entityBatchRepository;
+    }
+
+    public Mono<History> record(
+            final EntityType entityType,
+            final Entity entity,
+            final HistoryType type
+    ) {
+        return TenantContext.current()
+                .flatMap(tenantId -> historyRepository
+                        .save(toHistory(tenantId, entityType, entity, type, Instant.now())))
+                .flatMap(history -> outboxEventRepository.save(OutboxEvent.fromHistory(history))
+                        .thenReturn(history));
+    }
+
+    public Mono<Void> recordAll(
+            final EntityType entityType,
+            final List<? extends Entity> entities,
+            final HistoryType type,
+            final Instant now
+    ) {
+        return TenantContext.current().flatMap(tenantId -> {
+            final List<History> histories = new ArrayList<>(entities.size());
+            final List<OutboxEvent> events = new ArrayList<>(entities.size());
+            for (final Entity entity : entities) {
+                final History history = toHistory(tenantId, entityType, entity, type, now);
+                histories.add(history);
+                events.add(OutboxEvent.fromHistory(history));
+            }
+            return entityBatchRepository.insertHistory(histories)
+                    .then(entityBatchRepository.insertOutboxEvents(events));
+        });
+    }
+
+    public Mono<List<History>> findHistory(final EntityType entityType, final long entityId) {
+        return TenantContext.current()
+                .flatMap(tenantId -> historyRepository
+                        .findByTenantIdAndEntityTypeAndEntityIdOrderById(tenantId, entityType, entityId)
+                        .collectList());
+    }
+
+    public Mono<Map<Long, Collection<History>>> findHistory(
+            final EntityType entityType,
+            final Collection<Long> entityIds
+    ) {
+        if (entityIds.isEmpty()) {
+            return Mono.just(Collections.emptyMap());
+        }
+        return TenantContext.current()
+                .flatMap(tenantId -> historyRepository
+                        .findByTenantIdAndEntityTypeAndEntityIdInOrderById(tenantId, entityType, entityIds)
+                        .collectMultimap(History::getEntityId));
+    }
+
+    private History toHistory(
+            final String tenantId,
+            final EntityType entityType,
+            final Entity entity,
+            final HistoryType type,
+            final Instant now
+    ) {
+        return new History(0L, tenantId, entityType, entity.getId(), entity.getGuid(), type, now);
+    }
+
+}
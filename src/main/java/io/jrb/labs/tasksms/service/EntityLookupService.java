@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.service;
+
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.model.LookupValue;
+import io.jrb.labs.tasksms.model.LookupValueType;
+import io.jrb.labs.tasksms.repository.EntityBatchRepository;
+import io.jrb.labs.tasksms.repository.LookupValueRepository;
+import io.jrb.labs.tasksms.tenant.TenantContext;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+@ConditionalOnProperty(name = "tasks.storage.engine", havingValue = "r2dbc", matchIfMissing = true)
+public class EntityLookupService {
+
+    private final LookupValueRepository lookupValueRepository;
+    private final EntityBatchRepository entityBatchRepository;
+
+    public EntityLookupService(
+            final LookupValueRepository lookupValueRepository,
+            final EntityBatchRepository entityBatchRepository
+    ) {
+        this.lookupValueRepository = lookupValueRepository;
+        this.entityBatchRepository = entityBatchRepository;
+    }
+
+    public Mono<List<String>> createLookupValues(
+            final EntityType entityType,
+            final long entityId,
+            final LookupValueType valueType,
+            final Collection<String> values
+    ) {
+        return TenantContext.current()
+                .flatMap(tenantId -> entityBatchRepository.insertLookupValues(values.stream()
+                        .map(value -> LookupValue.of(tenantId, entityType, entityId, valueType, value))
+                        .collect(Collectors.toList())))
+                .thenReturn(List.copyOf(values));
+    }
+
+    public Mono<Void> createLookupValues(final List<LookupValue> lookupValues) {
+        return entityBatchRepository.insertLookupValues(lookupValues);
+    }
+
+    public Mono<List<LookupValue>> findLookupValues(final EntityType entityType, final long entityId) {
+        return TenantContext.current()
+                .flatMap(tenantId -> lookupValueRepository
+                        .findByTenantIdAndEntityTypeAndEntityId(tenantId, entityType, entityId)
+                        .collectList());
+    }
+
+    public Mono<Map<Long, Collection<LookupValue>>> findLookupValues(
+            final EntityType entityType,
+            final Collection<Long> entityIds
+    ) {
+        if (entityIds.isEmpty()) {
+            return Mono.just(Collections.emptyMap());
+        }
+        return TenantContext.current()
+                .flatMap(tenantId -> lookupValueRepository
+                        .findByTenantIdAndEntityTypeAndEntityIdIn(tenantId, entityType, entityIds)
+                        .collectMultimap(LookupValue::getEntityId));
+    }
+
+    public Mono<Void> deleteLookupValues(final EntityType entityType, final long entityId) {
+        return TenantContext.current()
+                .flatMap(tenantId -> lookupValueRepository
+                        .deleteByTenantIdAndEntityTypeAndEntityId(tenantId, entityType, entityId));
+    }
+
+    public Mono<Integer> deleteLookupValues(final EntityType entityType, final Collection<Long> entityIds) {
+        if (entityIds.isEmpty()) {
+            return Mono.just(0);
+        }
+        return lookupValueRepository.deleteByEntityTypeAndEntityIdIn(entityType.name(), entityIds);
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.service;
+
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.model.History;
+import io.jrb.labs.tasksms.model.HistoryRollup;
+import io.jrb.labs.tasksms.model.RollupBucket;
+import io.jrb.labs.tasksms.repository.HistoryRepository;
+import io.jrb.labs.tasksms.repository.HistoryRollupRepository;
+import io.jrb.labs.tasksms.resource.HistoryStatsResource;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import io.jrb.labs.tasksms.tenant.TenantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@ConditionalOnProperty(name = "tasks.storage.engine", havingValue = "r2dbc", matchIfMissing = true)
+@Slf4j
+public class HistoryStatsServiceImpl implements HistoryStatsService {
+
+    private static final Comparator<HistoryRollup> ROLLUP_ORDER = Comparator
+            .comparing(HistoryRollup::getTenantId)
+            .thenComparing(HistoryRollup::getBucket)
+            .thenComparing(HistoryRollup::getBucketStart)
+            .thenComparing(HistoryRollup::getEntityType)
+            .thenComparing(HistoryRollup::getEventType);
+
+    private final HistoryRepository historyRepository;
+    private final HistoryRollupRepository historyRollupRepository;
+    private final ShardRouter shardRouter;
+    private final Duration settleDelay;
+    private final int batchSize;
+
+    public HistoryStatsServiceImpl(
+            final HistoryRepository historyRepository,
+            final HistoryRollupRepository historyRollupRepository,
+            final ShardRouter shardRouter,
+            @Value("${tasks.history.rollup.settle-delay:5s}") final Duration settleDelay,
+            @Value("${tasks.history.rollup.batch-size:1000}") final int batchSize
+    ) {
+        this.historyRepository = historyRepository;
+        this.historyRollupRepository = historyRollupRepository;
+        this.shardRouter = shardRouter;
+        this.settleDelay = settleDelay;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public Flux<HistoryStatsResource> findStats(
+            final RollupBucket bucket,
+            final Instant from,
+            final Instant to,
+            final EntityType entityType
+    ) {
+        return TenantContext.current()
+                .flatMapMany(tenantId -> shardRouter.readOnly(shardRouter.scatter(shard -> historyRollupRepository
+                        .findRollups(tenantId, bucket, bucket.truncate(from), to, entityType))))
+                .collect(() -> new TreeMap<HistoryRollup, Long>(ROLLUP_ORDER),
+                        (totals, rollup) -> totals.merge(rollup, rollup.getCount(), Long::sum))
+                .flatMapIterable(Map::entrySet)
+                .map(entry -> HistoryStatsResource.fromRollup(entry.getKey().toBuilder()
+                        .count(entry.getValue())
+                        .build()));
+    }
+
+    @Override
+    public Mono<Integer> rollUpHistory() {
+        return Flux.fromIterable(shardRouter.shards())
+                .concatMap(shard -> rollUpBatch(shard)
+                        .expand(rolledUp -> (rolledUp < batchSize) ? Mono.empty() : rollUpBatch(shard)))
+                .reduce(0, Integer::sum);
+    }
+
+    private Mono<Integer> rollUpBatch(final int shard) {
+        final Instant now = Instant.now();
+        final Instant settledBefore = now.minus(settleDelay);
+        return shardRouter.onShardTransactional(shard, historyRollupRepository.findMark()
+                .flatMap(mark -> historyRepository.findBatchAfter(mark, batchSize)
+                        .collectList()
+                        .map(histories -> settledPrefix(histories, settledBefore))
+                        .filter(histories -> !histories.isEmpty())
+                        .flatMap(histories -> historyRollupRepository.increment(aggregate(histories, now))
+                                .then(historyRollupRepository.advanceMark(mark,
+                                        histories.get(histories.size() - 1).getId()))
+                                .flatMap(advanced -> (advanced > 0)
+                                        ? Mono.just(histories.size())
+                                        : Mono.error(new IllegalStateException(
+                                                "History rollup mark moved concurrently on shard " + shard)))))
+                .defaultIfEmpty(0));
+    }
+
+    private static List<History> settledPrefix(final List<History> histories, final Instant settledBefore) {
+        int settled = 0;
+        while (settled < histories.size() && Optional.ofNullable(histories.get(settled).getCreatedOn())
+                .map(createdOn -> createdOn.isBefore(settledBefore))
+                .orElse(true)) {
+            settled++;
+        }
+        return histories.subList(0, settled);
+    }
+
+    private static List<HistoryRollup> aggregate(final List<History> histories, final Instant rolledUpOn) {
+        return histories.stream()
+                .flatMap(history -> List.of(RollupBucket.values()).stream()
+                        .map(bucket -> HistoryRollup.builder()
+                                .tenantId(history.getTenantId())
+                                .bucket(bucket)
+                                .bucketStart(bucket.truncate(Optional.ofNullable(history.getCreatedOn())
+                                        .orElse(rolledUpOn)))
+                                .entityType(history.getEntityType())
+                                .eventType(history.getEventType())
+                                .count(1)
+                                .build()))
+                .collect(Collectors.toMap(Function.identity(), HistoryRollup::getCount, Long::sum,
+                        () -> new TreeMap<>(ROLLUP_ORDER)))
+                .entrySet().stream()
+                .map(entry -> entry.getKey().toBuilder().count(entry.getValue()).build())
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchException;
+import io.jrb.labs.tasksms.journal.JournaledTaskStore;
+import io.jrb.labs.tasksms.journal.StoredTask;
+import io.jrb.labs.tasksms.model.LookupValueType;
+import io.jrb.labs.tasksms.model.Projection;
+import io.jrb.labs.tasksms.model.TaskStatus;
+import io.jrb.labs.tasksms.model.TaskTransition;
+import io.jrb.labs.tasksms.resource.TaskLookupResource;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import io.jrb.labs.tasksms.tenant.TenantContext;
+import io.jrb.labs.tasksms.tenant.TenantQuotas;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+@Slf4j
+public class JournaledTaskServiceImpl implements TaskService {
+
+    private final JournaledTaskStore taskStore;
+    private final TenantQuotas tenantQuotas;
+    private final ObjectMapper objectMapper;
+
+    public JournaledTaskServiceImpl(
+            final JournaledTaskStore taskStore,
+            final TenantQuotas tenantQuotas,
+            final ObjectMapper objectMapper
+    ) {
+        this.taskStore = taskStore;
+        this.tenantQuotas = tenantQuotas;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<TaskResource> createTask(final TaskResource task) {
+        return TenantContext.current()
+                .flatMap(tenantId -> tenantQuotas.reserveTasks(tenantId, 1, taskStore.insert(tenantId, task.toBuilder()
+                        .guid(UUID.randomUUID())
+                        .status(TaskStatus.PENDING)
+                        .createdOn(Instant.now())
+                        .build())))
+                .map(StoredTask::getTask);
+    }
+
+    @Override
+    public Mono<Void> deleteTask(final UUID taskGuid) {
+        return TenantContext.current()
+                .flatMap(tenantId -> findOwned(tenantId, taskGuid)
+                        .flatMap(stored -> taskStore.delete(taskGuid))
+                        .switchIfEmpty(Mono.error(() -> new TaskNotFoundException(taskGuid)))
+                        .doOnNext(stored -> tenantQuotas.releaseTasks(tenantId, 1)))
+                .then();
+    }
+
+    @Override
+    public Mono<TaskResource> findTaskByGuid(final UUID guid, final Projection projection) {
+        return TenantContext.current()
+                .flatMap(tenantId -> findOwned(tenantId, guid))
+                .switchIfEmpty(Mono.error(() -> new TaskNotFoundException(guid)))
+                .map(stored -> project(stored.getTask(), projection));
+    }
+
+    @Override
+    public Flux<TaskLookupResource> findTasksByGuids(final List<UUID> guids, final Projection projection) {
+        return TenantContext.current()
+                .flatMapMany(tenantId -> Flux.fromIterable(guids)
+                        .map(guid -> taskStore.findByGuid(guid)
+                                .filter(stored -> stored.isOwnedBy(tenantId))
+                                .map(stored -> TaskLookupResource.found(project(stored.getTask(), projection)))
+                                .orElseGet(() -> TaskLookupResource.notFound(guid))));
+    }
+
+    @Override
+    public Flux<TaskResource> listAllTasks() {
+        return TenantContext.current()
+                .flatMapMany(tenantId -> Flux.fromStream(() -> taskStore.findAll()
+                        .filter(stored -> stored.isOwnedBy(tenantId))))
+                .map(stored -> project(stored.getTask(), Projection.DETAILS));
+    }
+
+    @Override
+    public Flux<TaskResource> listTasksByLookupValue(final LookupValueType type, final String value) {
+        return TenantContext.current()
+                .flatMapMany(tenantId -> Flux.fromStream(() -> taskStore.findByLookupValue(type, value)
+                        .filter(stored -> stored.isOwnedBy(tenantId))))
+                .map(stored -> project(stored.getTask(), Projection.DETAILS));
+    }
+
+    @Override
+    public Flux<TaskResource> listTasksByStatus(final TaskStatus status, final UUID after, final int limit) {
+        return TenantContext.current()
+                .flatMapMany(tenantId -> Flux.fromStream(() -> {
+                    final long afterId = (after != null)
+                            ? taskStore.findByGuid(after)
+                                    .filter(stored -> stored.isOwnedBy(tenantId))
+                                    .map(StoredTask::getId)
+                                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                            "Unknown 'after' cursor: " + after))
+                            : 0L;
+                    return taskStore.findByStatus(status, afterId)
+                            .filter(stored -> stored.isOwnedBy(tenantId))
+                            .limit(limit);
+                }))
+                .map(stored -> project(stored.getTask(), Projection.DETAILS));
+    }
+
+    @Override
+    public Mono<TaskResource> restoreTask(final UUID guid) {
+        return Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED,
+                "The journal storage engine deletes tasks permanently"));
+    }
+
+    @Override
+    public Mono<TaskResource> transitionTask(final UUID guid, final TaskTransition transition) {
+        return updateOwned(guid, task -> {
+                    if (!transition.getSources().contains(task.getStatus())) {
+                        throw new InvalidTaskStateException(guid, task.getStatus(), transition);
+                    }
+                    return task.toBuilder()
+                            .status(transition.getTarget())
+                            .modifiedOn(Instant.now())
+                            .build();
+                })
+                .map(stored -> project(stored.getTask(), Projection.DETAILS));
+    }
+
+    @Override
+    public Mono<TaskResource> updateTask(final UUID guid, final JsonPatch patch) {
+        return updateOwned(guid, task -> {
+                    final TaskResource patched = applyPatch(patch, task);
+                    return task.toBuilder()
+                            .name(patched.getName())
+                            .description(patched.getDescription())
+                            .modifiedOn(Instant.now())
+                            .build();
+                })
+                .map(stored -> project(stored.getTask(), Projection.DETAILS));
+    }
+
+    private Mono<StoredTask> findOwned(final String tenantId, final UUID guid) {
+        return Mono.justOrEmpty(taskStore.findByGuid(guid).filter(stored -> stored.isOwnedBy(tenantId)));
+    }
+
+    private Mono<StoredTask> updateOwned(final UUID guid, final UnaryOperator<TaskResource> updater) {
+        return TenantContext.current()
+                .flatMap(tenantId -> findOwned(tenantId, guid))
+                .flatMap(stored -> taskStore.update(guid, updater))
+                .switchIfEmpty(Mono.error(() -> new TaskNotFoundException(guid)));
+    }
+
+    private TaskResource applyPatch(final JsonPatch patch, final TaskResource task) {
+        try {
+            final JsonNode patched = patch.apply(objectMapper.valueToTree(task));
+            return objectMapper.treeToValue(patched, TaskResource.class);
+        } catch (final JsonPatchException | IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unable to apply patch to task", e);
+        }
+    }
+
+    private TaskResource project(final TaskResource task, final Projection projection) {
+        if (projection == Projection.DEEP) {
+            return task;
+        }
+        return task.toBuilder().clearGroups().clearTags().build();
+    }
+
+}
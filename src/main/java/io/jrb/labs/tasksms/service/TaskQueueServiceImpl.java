@@ -0,0 +1,236 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.service;
+
+import io.jrb.labs.tasksms.mapping.TaskMapper;
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.model.HistoryType;
+import io.jrb.labs.tasksms.model.Task;
+import io.jrb.labs.tasksms.model.TaskStatus;
+import io.jrb.labs.tasksms.repository.TaskRepository;
+import io.jrb.labs.tasksms.resource.TaskLeaseResource;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import io.jrb.labs.tasksms.tenant.TenantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+@Service
+@ConditionalOnProperty(name = "tasks.storage.engine", havingValue = "r2dbc", matchIfMissing = true)
+@Slf4j
+public class TaskQueueServiceImpl implements TaskQueueService {
+
+    private final TaskRepository taskRepository;
+    private final EntityHistoryService entityHistoryService;
+    private final ShardRouter shardRouter;
+    private final int maxClaim;
+    private final int sweepLimit;
+
+    public TaskQueueServiceImpl(
+            final TaskRepository taskRepository,
+            final EntityHistoryService entityHistoryService,
+            final ShardRouter shardRouter,
+            @Value("${tasks.queue.max-claim:1000}") final int maxClaim,
+            @Value("${tasks.queue.sweep-limit:1000}") final int sweepLimit
+    ) {
+        this.taskRepository = taskRepository;
+        this.entityHistoryService = entityHistoryService;
+        this.shardRouter = shardRouter;
+        this.maxClaim = maxClaim;
+        this.sweepLimit = sweepLimit;
+    }
+
+    @Override
+    public Mono<TaskLeaseResource> claimTasks(final int limit, final Duration lease) {
+        final UUID leaseId = UUID.randomUUID();
+        final Instant now = Instant.now();
+        final Instant expiresOn = now.plus(lease);
+        return TenantContext.current().flatMap(tenantId -> {
+            final AtomicInteger remaining = new AtomicInteger(Math.min(limit, maxClaim));
+            return Flux.fromIterable(claimOrder())
+                    .concatMap(shard -> (remaining.get() > 0)
+                            ? shardRouter.onShardTransactional(shard,
+                                    claimOnShard(tenantId, leaseId, expiresOn, now, remaining.get()))
+                            : Mono.empty())
+                    .doOnNext(tasks -> remaining.addAndGet(-tasks.size()))
+                    .flatMapIterable(tasks -> tasks)
+                    .collectList()
+                    .map(tasks -> toLease(leaseId, expiresOn, tasks));
+        });
+    }
+
+    @Override
+    public Flux<TaskResource> completeTasks(final UUID leaseId, final List<UUID> guids) {
+        return endLease(leaseId, guids, TaskStatus.STOPPED, HistoryType.STOPPED);
+    }
+
+    @Override
+    public Mono<Integer> expireLeases() {
+        final Instant now = Instant.now();
+        return Flux.fromIterable(shardRouter.shards())
+                .concatMap(shard -> shardRouter.onShardTransactional(shard, expireLeasesOnShard(now)))
+                .reduce(0, Integer::sum);
+    }
+
+    @Override
+    public Mono<TaskLeaseResource> extendLease(final UUID leaseId, final Duration lease) {
+        final Instant expiresOn = Instant.now().plus(lease);
+        return TenantContext.current().flatMap(tenantId -> Flux.fromIterable(shardRouter.shards())
+                .concatMap(shard -> shardRouter.onShardTransactional(shard,
+                        taskRepository.extendLease(tenantId, leaseId, expiresOn)))
+                .reduce(0, Integer::sum)
+                .filter(updated -> updated > 0)
+                .switchIfEmpty(Mono.error(() -> leaseNotFound(leaseId)))
+                .thenMany(shardRouter.scatter(shard -> taskRepository.findLeased(tenantId, leaseId)))
+                .collectList()
+                .map(tasks -> toLease(leaseId, expiresOn, tasks)));
+    }
+
+    @Override
+    public Flux<TaskResource> releaseTasks(final UUID leaseId, final List<UUID> guids) {
+        return endLease(leaseId, guids, TaskStatus.PENDING, null);
+    }
+
+    private List<Integer> claimOrder() {
+        final List<Integer> shards = shardRouter.shards();
+        final int offset = ThreadLocalRandom.current().nextInt(shards.size());
+        final List<Integer> order = new ArrayList<>(shards.subList(offset, shards.size()));
+        order.addAll(shards.subList(0, offset));
+        return order;
+    }
+
+    private Mono<List<Task>> claimOnShard(
+            final String tenantId,
+            final UUID leaseId,
+            final Instant expiresOn,
+            final Instant now,
+            final int limit
+    ) {
+        return taskRepository.claimPending(tenantId, leaseId, expiresOn, now, limit)
+                .retryWhen(Retry.backoff(3, Duration.ofMillis(10))
+                        .filter(TransientDataAccessException.class::isInstance))
+                .thenMany(taskRepository.findLeased(tenantId, leaseId))
+                .collectList()
+                .flatMap(tasks -> entityHistoryService.recordAll(EntityType.TASK, tasks, HistoryType.STARTED, now)
+                        .thenReturn(tasks));
+    }
+
+    private Mono<Integer> expireLeasesOnShard(final Instant now) {
+        return taskRepository.lockExpiredLeases(now, sweepLimit)
+                .collectList()
+                .filter(tasks -> !tasks.isEmpty())
+                .flatMap(tasks -> taskRepository.endLease(TaskStatus.PENDING.name(), now,
+                                tasks.stream().map(Task::getId).collect(Collectors.toList()))
+                        .thenMany(Flux.fromIterable(tasks.stream()
+                                .collect(Collectors.groupingBy(Task::getTenantId))
+                                .entrySet()))
+                        .concatMap(entry -> entityHistoryService
+                                .recordAll(EntityType.TASK, entry.getValue(), HistoryType.EXPIRED, now)
+                                .contextWrite(TenantContext.of(entry.getKey())))
+                        .then(Mono.just(tasks.size())))
+                .defaultIfEmpty(0);
+    }
+
+    private Flux<TaskResource> endLease(
+            final UUID leaseId,
+            final List<UUID> guids,
+            final TaskStatus status,
+            final HistoryType historyType
+    ) {
+        final Set<UUID> selected = new HashSet<>(guids);
+        final Instant now = Instant.now();
+        final List<Integer> shards = selected.isEmpty()
+                ? shardRouter.shards()
+                : selected.stream().map(shardRouter::shardFor).distinct().sorted().collect(Collectors.toList());
+        return TenantContext.current()
+                .flatMapMany(tenantId -> Flux.fromIterable(shards)
+                        .concatMap(shard -> shardRouter.onShardTransactional(shard,
+                                endLeaseOnShard(tenantId, leaseId, selected, status, historyType, now))))
+                .flatMapIterable(tasks -> tasks)
+                .collectList()
+                .filter(tasks -> !tasks.isEmpty())
+                .switchIfEmpty(Mono.error(() -> leaseNotFound(leaseId)))
+                .flatMapIterable(tasks -> tasks.stream()
+                        .map(task -> TaskMapper.toResource(task, status, now))
+                        .collect(Collectors.toList()));
+    }
+
+    private Mono<List<Task>> endLeaseOnShard(
+            final String tenantId,
+            final UUID leaseId,
+            final Set<UUID> selected,
+            final TaskStatus status,
+            final HistoryType historyType,
+            final Instant now
+    ) {
+        return taskRepository.lockLeased(tenantId, leaseId)
+                .filter(task -> selected.isEmpty() || selected.contains(task.getGuid()))
+                .collectList()
+                .filter(tasks -> !tasks.isEmpty())
+                .flatMap(tasks -> {
+                    final List<Long> taskIds = tasks.stream().map(Task::getId).collect(Collectors.toList());
+                    final Mono<Void> history = (historyType != null)
+                            ? entityHistoryService.recordAll(EntityType.TASK, tasks, historyType, now)
+                            : Mono.empty();
+                    return taskRepository.endLease(status.name(), now, taskIds)
+                            .then(history)
+                            .thenReturn(tasks);
+                })
+                .defaultIfEmpty(List.of());
+    }
+
+    private TaskLeaseResource toLease(final UUID leaseId, final Instant expiresOn, final List<Task> tasks) {
+        return TaskLeaseResource.builder()
+                .leaseId(leaseId)
+                .expiresOn(expiresOn)
+                .tasks(tasks.stream()
+                        .map(TaskMapper::toResource)
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private ResponseStatusException leaseNotFound(final UUID leaseId) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "No active tasks under lease " + leaseId);
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.service;
+
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.repository.TaskRepository;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Service
+@ConditionalOnProperty(name = "tasks.storage.engine", havingValue = "r2dbc", matchIfMissing = true)
+@Slf4j
+public class TaskRetentionServiceImpl implements TaskRetentionService {
+
+    private final TaskRepository taskRepository;
+    private final EntityLookupService entityLookupService;
+    private final ShardRouter shardRouter;
+    private final Duration retention;
+    private final int batchSize;
+
+    public TaskRetentionServiceImpl(
+            final TaskRepository taskRepository,
+            final EntityLookupService entityLookupService,
+            final ShardRouter shardRouter,
+            @Value("${tasks.deletion.retention:7d}") final Duration retention,
+            @Value("${tasks.deletion.reap-batch-size:500}") final int batchSize
+    ) {
+        this.taskRepository = taskRepository;
+        this.entityLookupService = entityLookupService;
+        this.shardRouter = shardRouter;
+        this.retention = retention;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public Mono<Integer> purgeDeletedTasks() {
+        final Instant cutoff = Instant.now().minus(retention);
+        return Flux.fromIterable(shardRouter.shards())
+                .concatMap(shard -> purgeBatch(shard, cutoff)
+                        .expand(purged -> (purged < batchSize) ? Mono.empty() : purgeBatch(shard, cutoff)))
+                .reduce(0, Integer::sum);
+    }
+
+    private Mono<Integer> purgeBatch(final int shard, final Instant cutoff) {
+        return shardRouter.onShardTransactional(shard, taskRepository.findDeletedBefore(cutoff, batchSize)
+                .collectList()
+                .filter(taskIds -> !taskIds.isEmpty())
+                .flatMap(taskIds -> entityLookupService.deleteLookupValues(EntityType.TASK, taskIds)
+                        .then(taskRepository.purge(taskIds)))
+                .defaultIfEmpty(0));
+    }
+
+}
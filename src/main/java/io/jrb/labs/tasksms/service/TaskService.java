@@ -24,11 +24,16 @@
 package io.jrb.labs.tasksms.service;
 
 import com.github.fge.jsonpatch.JsonPatch;
+import io.jrb.labs.tasksms.model.LookupValueType;
 import io.jrb.labs.tasksms.model.Projection;
+import io.jrb.labs.tasksms.model.TaskStatus;
+import io.jrb.labs.tasksms.model.TaskTransition;
+import io.jrb.labs.tasksms.resource.TaskLookupResource;
 import io.jrb.labs.tasksms.resource.TaskResource;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.UUID;
 
 public interface TaskService {
@@ -39,8 +44,18 @@ public interface TaskService {
 
     Mono<TaskResource> findTaskByGuid(UUID guid, Projection projection);
 
+    Flux<TaskLookupResource> findTasksByGuids(List<UUID> guids, Projection projection);
+
     Flux<TaskResource> listAllTasks();
 
+    Flux<TaskResource> listTasksByLookupValue(LookupValueType type, String value);
+
+    Flux<TaskResource> listTasksByStatus(TaskStatus status, UUID after, int limit);
+
+    Mono<TaskResource> restoreTask(UUID guid);
+
+    Mono<TaskResource> transitionTask(UUID guid, TaskTransition transition);
+
     Mono<TaskResource> updateTask(UUID guid, JsonPatch patch);
 
 }
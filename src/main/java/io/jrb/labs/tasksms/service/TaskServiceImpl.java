@@ -26,6 +26,9 @@ package io.jrb.labs.tasksms.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.fge.jsonpatch.JsonPatch;
 import io.jrb.labs.common.service.crud.CrudServiceSupport;
+import io.jrb.labs.tasksms.mapping.TaskMapper;
+import io.jrb.labs.tasksms.metrics.OperationTimingHook;
+import io.jrb.labs.tasksms.model.DeletionMode;
 import io.jrb.labs.tasksms.model.EntityType;
 import io.jrb.labs.tasksms.model.History;
 import io.jrb.labs.tasksms.model.HistoryType;
@@ -33,162 +36,332 @@ import io.jrb.labs.tasksms.model.Task;
 import io.jrb.labs.tasksms.model.LookupValue;
 import io.jrb.labs.tasksms.model.LookupValueType;
 import io.jrb.labs.tasksms.model.Projection;
-import io.jrb.labs.tasksms.repository.HistoryRepository;
+import io.jrb.labs.tasksms.model.TaskStatus;
+import io.jrb.labs.tasksms.model.TaskTransition;
 import io.jrb.labs.tasksms.repository.TaskRepository;
-import io.jrb.labs.tasksms.repository.LookupValueRepository;
+import io.jrb.labs.tasksms.resource.TaskLookupResource;
 import io.jrb.labs.tasksms.resource.TaskResource;
+import io.jrb.labs.tasksms.schedule.ScheduledTask;
+import io.jrb.labs.tasksms.schedule.TaskScheduler;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import io.jrb.labs.tasksms.tenant.TenantContext;
+import io.jrb.labs.tasksms.tenant.TenantQuotas;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
+@ConditionalOnProperty(name = "tasks.storage.engine", havingValue = "r2dbc", matchIfMissing = true)
 @Slf4j
 public class TaskServiceImpl extends CrudServiceSupport<Task, Task.TaskBuilder> implements TaskService {
 
+    private static final String OPERATION_METRIC = "tasks.service";
+
+    private static final Comparator<Task> TASK_ORDER = Comparator
+            .comparing(Task::getCreatedOn, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Task::getGuid);
+
     private final TaskRepository taskRepository;
-    private final LookupValueRepository lookupValueRepository;
-    private final HistoryRepository historyRepository;
+    private final EntityLookupService entityLookupService;
+    private final EntityHistoryService entityHistoryService;
+    private final ShardRouter shardRouter;
+    private final ObjectProvider<TaskScheduler> taskScheduler;
+    private final TenantQuotas tenantQuotas;
+    private final DeletionMode deletionMode;
+    private final Duration retention;
 
     public TaskServiceImpl(
             final TaskRepository taskRepository,
-            final LookupValueRepository lookupValueRepository,
-            final HistoryRepository historyRepository,
-            final ObjectMapper objectMapper
+            final EntityLookupService entityLookupService,
+            final EntityHistoryService entityHistoryService,
+            final ShardRouter shardRouter,
+            final ObjectProvider<TaskScheduler> taskScheduler,
+            final TenantQuotas tenantQuotas,
+            final ObjectMapper objectMapper,
+            @Value("${tasks.deletion.mode:SOFT}") final DeletionMode deletionMode,
+            @Value("${tasks.deletion.retention:7d}") final Duration retention
     ) {
         super(Task.class, taskRepository, objectMapper);
         this.taskRepository = taskRepository;
-        this.lookupValueRepository = lookupValueRepository;
-        this.historyRepository = historyRepository;
+        this.entityLookupService = entityLookupService;
+        this.entityHistoryService = entityHistoryService;
+        this.shardRouter = shardRouter;
+        this.taskScheduler = taskScheduler;
+        this.tenantQuotas = tenantQuotas;
+        this.deletionMode = deletionMode;
+        this.retention = retention;
     }
 
     @Override
-    @Transactional
     public Mono<TaskResource> createTask(final TaskResource task) {
-        return createEntity(Task.fromResource(task))
-                .zipWhen(taskEntity -> Mono.zip(
-                        createLookupValues(taskEntity.getId(), LookupValueType.GROUP, task.getGroups()),
-                        createLookupValues(taskEntity.getId(), LookupValueType.TAG, task.getTags()),
-                        createHistory(taskEntity.getId(), HistoryType.CREATED, builder -> {})
-                ))
-                .map(tuple -> TaskResource.fromEntity(tuple.getT1())
-                        .groups(tuple.getT2().getT1())
-                        .tags(tuple.getT2().getT1())
-                        .build());
+        final UUID guid = UUID.randomUUID();
+        final Instant now = Instant.now();
+        final Instant dueOn;
+        try {
+            dueOn = resolveDueOn(task.getDueOn(), task.getRecurrence(), now);
+        } catch (final ResponseStatusException e) {
+            return Mono.error(e);
+        }
+        return TenantContext.current()
+                .flatMap(tenantId -> tenantQuotas.reserveTasks(tenantId, 1, shardRouter.routeTransactional(guid,
+                        taskRepository
+                                .save(TaskMapper.toEntity(task, guid, tenantId, TaskStatus.PENDING, dueOn, now))
+                                .zipWhen(taskEntity -> Mono.zip(
+                                        entityLookupService.createLookupValues(EntityType.TASK,
+                                                taskEntity.getId(), LookupValueType.GROUP, task.getGroups()),
+                                        entityLookupService.createLookupValues(EntityType.TASK,
+                                                taskEntity.getId(), LookupValueType.TAG, task.getTags()),
+                                        createHistory(taskEntity, HistoryType.CREATED)
+                                ))
+                                .map(tuple -> TaskMapper.toResource(
+                                        tuple.getT1(), tuple.getT2().getT1(), tuple.getT2().getT2()))))
+                        .doOnNext(resource -> schedule(tenantId, resource)))
+                .name(OPERATION_METRIC)
+                .tag(OperationTimingHook.OPERATION_TAG, "createTask");
     }
 
     @Override
-    @Transactional
     public Mono<Void> deleteTask(final UUID taskGuid) {
-        return deleteEntity(taskGuid, taskEntity -> {
-            final long taskId = taskEntity.getId();
-            return lookupValueRepository.deleteByEntityTypeAndEntityId(EntityType.TASK, taskId)
-                    .then(taskRepository.deleteById(taskId))
-                    .then(createHistory(taskId, HistoryType.DELETED, builder -> {}))
-                    .then();
-        });
+        return TenantContext.current()
+                .flatMap(tenantId -> shardRouter.routeTransactional(taskGuid, deleteEntity(taskGuid, taskEntity -> {
+                    final long taskId = taskEntity.getId();
+                    final Mono<Void> removal = (deletionMode == DeletionMode.SOFT)
+                            ? taskRepository.markDeleted(taskId, Instant.now()).then()
+                            : entityLookupService.deleteLookupValues(EntityType.TASK, taskId)
+                                    .then(taskRepository.deleteById(taskId));
+                    return removal
+                            .then(createHistory(taskEntity, HistoryType.DELETED))
+                            .then();
+                }))
+                        .then(Mono.fromRunnable(() -> tenantQuotas.releaseTasks(tenantId, 1))))
+                .then()
+                .name(OPERATION_METRIC)
+                .tag(OperationTimingHook.OPERATION_TAG, "deleteTask");
     }
 
     @Override
-    @Transactional
     public Mono<TaskResource> findTaskByGuid(final UUID taskGuid, final Projection projection) {
-        return findEntityByGuid(taskGuid)
+        return shardRouter.readOnly(shardRouter.routeTransactional(taskGuid, findEntityByGuid(taskGuid)
                 .zipWhen(task -> Mono.zip(
                         findTaskValueList(task.getId(), projection),
                         findTaskHistory(task.getId(), projection)
                 ))
-                .map(tuple -> {
-                    final TaskResource.TaskResourceBuilder builder = TaskResource.fromEntity(tuple.getT1());
-                    tuple.getT2().getT1().forEach(lookupValue -> {
-                        final String value = lookupValue.getValue();
-                        switch (lookupValue.getValueType()) {
-                            case GROUP:
-                                builder.group(value);
-                                break;
-                            case TAG:
-                                builder.tag(value);
-                                break;
-                        }
-                    });
-                    return builder.build();
-                });
+                .map(tuple -> TaskMapper.toResource(tuple.getT1(), tuple.getT2().getT1()))))
+                .name(OPERATION_METRIC)
+                .tag(OperationTimingHook.OPERATION_TAG, "findTaskByGuid");
+    }
+
+    @Override
+    public Flux<TaskLookupResource> findTasksByGuids(final List<UUID> guids, final Projection projection) {
+        if (guids.isEmpty()) {
+            return Flux.empty();
+        }
+        final Map<Integer, Set<UUID>> guidsByShard = new LinkedHashSet<>(guids).stream()
+                .collect(Collectors.groupingBy(shardRouter::shardFor, Collectors.toCollection(LinkedHashSet::new)));
+        return shardRouter.readOnly(Flux.fromIterable(guidsByShard.entrySet())
+                .flatMap(entry -> shardRouter.onShardTransactional(entry.getKey(),
+                        findTaskResources(entry.getValue(), projection))))
+                .collectMap(TaskResource::getGuid)
+                .flatMapIterable(tasks -> guids.stream()
+                        .map(guid -> Optional.ofNullable(tasks.get(guid))
+                                .map(TaskLookupResource::found)
+                                .orElseGet(() -> TaskLookupResource.notFound(guid)))
+                        .collect(Collectors.toList()))
+                .name(OPERATION_METRIC)
+                .tag(OperationTimingHook.OPERATION_TAG, "findTasksByGuids");
     }
 
     @Override
-    @Transactional
     public Flux<TaskResource> listAllTasks() {
-        return retrieveEntities()
-                .map(entity -> TaskResource.fromEntity(entity).build());
+        return TenantContext.current()
+                .flatMapMany(tenantId -> shardRouter.readOnly(shardRouter.scatterOrdered(TASK_ORDER,
+                        shard -> taskRepository.findAllOrdered(tenantId))))
+                .map(TaskMapper::toResource)
+                .name(OPERATION_METRIC)
+                .tag(OperationTimingHook.OPERATION_TAG, "listAllTasks");
+    }
+
+    @Override
+    public Flux<TaskResource> listTasksByLookupValue(final LookupValueType type, final String value) {
+        return TenantContext.current()
+                .flatMapMany(tenantId -> shardRouter.readOnly(shardRouter.scatterOrdered(TASK_ORDER,
+                        shard -> taskRepository.findByLookupValue(
+                                tenantId, EntityType.TASK.name(), type.name(), value))))
+                .map(TaskMapper::toResource)
+                .name(OPERATION_METRIC)
+                .tag(OperationTimingHook.OPERATION_TAG, "listTasksByLookupValue");
+    }
+
+    @Override
+    public Flux<TaskResource> listTasksByStatus(final TaskStatus status, final UUID after, final int limit) {
+        return TenantContext.current().flatMapMany(tenantId -> {
+            final Mono<Task> cursor = (after != null)
+                    ? shardRouter.route(after, taskRepository.findByTenantIdAndGuid(tenantId, after))
+                            .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                    "Unknown 'after' cursor: " + after)))
+                    : Mono.empty();
+            return shardRouter.readOnly(cursor.map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMapMany(start -> shardRouter.scatterOrdered(TASK_ORDER, shard -> start
+                            .map(task -> taskRepository.findByStatusAfter(
+                                    tenantId, status.name(), task.getCreatedOn(), task.getGuid(), limit))
+                            .orElseGet(() -> taskRepository.findByStatus(tenantId, status.name(), limit))))
+                    .take(limit));
+        })
+                .map(TaskMapper::toResource)
+                .name(OPERATION_METRIC)
+                .tag(OperationTimingHook.OPERATION_TAG, "listTasksByStatus");
+    }
+
+    @Override
+    public Mono<TaskResource> restoreTask(final UUID guid) {
+        final Instant now = Instant.now();
+        return TenantContext.current()
+                .flatMap(tenantId -> tenantQuotas.reserveTasks(tenantId, 1, shardRouter.routeTransactional(guid,
+                        taskRepository
+                                .restoreDeleted(tenantId, guid, now.minus(retention), now)
+                                .filter(restored -> restored > 0)
+                                .switchIfEmpty(Mono.error(() -> new TaskNotFoundException(guid)))
+                                .then(findEntityByGuid(guid))
+                                .flatMap(taskEntity -> createHistory(taskEntity, HistoryType.RESTORED)
+                                        .thenReturn(taskEntity))
+                                .map(TaskMapper::toResource)))
+                        .doOnNext(resource -> schedule(tenantId, resource)))
+                .name(OPERATION_METRIC)
+                .tag(OperationTimingHook.OPERATION_TAG, "restoreTask");
+    }
+
+    @Override
+    public Mono<TaskResource> transitionTask(final UUID guid, final TaskTransition transition) {
+        final String target = transition.getTarget().name();
+        return TenantContext.current()
+                .flatMap(tenantId -> shardRouter.routeTransactional(guid, taskRepository
+                        .updateStatus(tenantId, target, Instant.now(), guid, transition.getSourceNames())
+                        .flatMap(updated -> findEntityByGuid(guid)
+                                .flatMap(taskEntity -> (updated > 0)
+                                        ? createHistory(taskEntity, transition.getHistoryType())
+                                                .thenReturn(taskEntity)
+                                        : Mono.error(new InvalidTaskStateException(
+                                                guid, taskEntity.getStatus(), transition))))
+                        .map(TaskMapper::toResource)))
+                .name(OPERATION_METRIC)
+                .tag(OperationTimingHook.OPERATION_TAG, "transitionTask");
     }
 
     @Override
-    @Transactional
     public Mono<TaskResource> updateTask(final UUID guid, final JsonPatch patch) {
-        return updateEntity(guid, entity -> {
-            final TaskResource resource = TaskResource.fromEntity(entity).build();
+        return shardRouter.routeTransactional(guid, updateEntity(guid, entity -> {
+            final TaskResource resource = TaskMapper.toResource(entity);
             final TaskResource updatedResource = applyPatch(guid, patch, resource, TaskResource.class);
-            return Task.fromResource(updatedResource);
-        }).flatMap(taskEntity -> {
-            final long taskId = taskEntity.getId();
-            return createHistory(taskId, HistoryType.UPDATED, builder -> {})
-                    .then(findTaskByGuid(guid, Projection.DETAILS));
-        });
-    }
-
-    private Mono<Long> createHistory(
-            final long taskId,
-            final HistoryType type,
-            final Consumer<History.HistoryBuilder> callback
-    ) {
-        return Mono.just(type)
-                .map(value -> {
-                    final History.HistoryBuilder builder = History.builder()
-                        .entityType(EntityType.TASK)
-                        .entityId(taskId)
-                        .eventType(type);
-                    callback.accept(builder);
-                    return builder.build();
-                })
-                .flatMap(historyRepository::save)
+            final Instant dueOn;
+            if (!Objects.equals(resource.getDueOn(), updatedResource.getDueOn())) {
+                dueOn = resolveDueOn(updatedResource.getDueOn(), updatedResource.getRecurrence(), Instant.now());
+            } else if (updatedResource.getRecurrence() != null
+                    && !updatedResource.getRecurrence().equals(resource.getRecurrence())) {
+                dueOn = resolveDueOn(null, updatedResource.getRecurrence(), Instant.now());
+            } else {
+                dueOn = entity.getDueOn();
+            }
+            return entity.toBuilder()
+                    .name(updatedResource.getName())
+                    .description(updatedResource.getDescription())
+                    .dueOn(dueOn)
+                    .recurrence(updatedResource.getRecurrence());
+        }).flatMap(taskEntity -> createHistory(taskEntity, HistoryType.UPDATED)
+                .then(findTaskByGuid(guid, Projection.DETAILS))))
+                .flatMap(resource -> TenantContext.current()
+                        .doOnNext(tenantId -> schedule(tenantId, resource))
+                        .thenReturn(resource))
+                .name(OPERATION_METRIC)
+                .tag(OperationTimingHook.OPERATION_TAG, "updateTask");
+    }
+
+    @Override
+    protected Mono<Task> findEntityByGuid(final UUID guid) {
+        return TenantContext.current()
+                .flatMap(tenantId -> taskRepository.findByTenantIdAndGuid(tenantId, guid))
+                .switchIfEmpty(Mono.error(() -> new TaskNotFoundException(guid)));
+    }
+
+    private Instant resolveDueOn(final Instant dueOn, final String recurrence, final Instant now) {
+        if (dueOn != null) {
+            return dueOn.truncatedTo(ChronoUnit.MILLIS);
+        } else if (recurrence == null) {
+            return null;
+        }
+        try {
+            return TaskScheduler.nextOccurrence(recurrence, now).truncatedTo(ChronoUnit.MILLIS);
+        } catch (final IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid recurrence: " + recurrence, e);
+        }
+    }
+
+    private void schedule(final String tenantId, final TaskResource resource) {
+        taskScheduler.ifAvailable(scheduler -> scheduler.schedule(ScheduledTask.of(tenantId, resource)));
+    }
+
+    private Mono<Long> createHistory(final Task task, final HistoryType type) {
+        return entityHistoryService.record(EntityType.TASK, task, type)
                 .map(History::getId);
     }
 
-    private Mono<List<String>> createLookupValues(
-            final long taskId,
-            final LookupValueType type,
-            final List<String> values
-    ) {
-        return Flux.fromIterable(values)
-                .map(value -> LookupValue.builder()
-                        .entityType(EntityType.TASK)
-                        .entityId(taskId)
-                        .valueType(type)
-                        .value(value)
-                        .build())
-                .flatMap(lookupValueRepository::save)
-                .map(LookupValue::getValue)
-                .collectList();
+    private Flux<TaskResource> findTaskResources(final Collection<UUID> guids, final Projection projection) {
+        return TenantContext.current()
+                .flatMap(tenantId -> taskRepository.findByGuidIn(tenantId, guids).collectList())
+                .zipWhen(tasks -> findTaskValueMap(tasks, projection))
+                .flatMapIterable(tuple -> {
+                    final Map<Long, Collection<LookupValue>> values = tuple.getT2();
+                    return tuple.getT1().stream()
+                            .map(task -> TaskMapper.toResource(task,
+                                    values.getOrDefault(task.getId(), Collections.emptyList())))
+                            .collect(Collectors.toList());
+                });
     }
 
     private Mono<List<LookupValue>> findTaskValueList(final long entityId, final Projection projection) {
         if (projection == Projection.DEEP) {
-            return lookupValueRepository.findByEntityTypeAndEntityId(EntityType.TASK, entityId)
-                    .collectList();
+            return entityLookupService.findLookupValues(EntityType.TASK, entityId);
         } else {
             return Mono.just(Collections.emptyList());
         }
     }
 
+    private Mono<Map<Long, Collection<LookupValue>>> findTaskValueMap(
+            final Collection<Task> tasks,
+            final Projection projection
+    ) {
+        if (projection == Projection.DEEP && !tasks.isEmpty()) {
+            final List<Long> taskIds = tasks.stream().map(Task::getId).collect(Collectors.toList());
+            return entityLookupService.findLookupValues(EntityType.TASK, taskIds);
+        } else {
+            return Mono.just(Collections.emptyMap());
+        }
+    }
+
     private Mono<List<History>> findTaskHistory(final long entityId, final Projection projection) {
         if (projection == Projection.DEEP) {
-            return historyRepository.findByEntityTypeAndEntityId(EntityType.TASK, entityId)
-                    .collectList();
+            return entityHistoryService.findHistory(EntityType.TASK, entityId);
         } else {
             return Mono.just(Collections.emptyList());
         }
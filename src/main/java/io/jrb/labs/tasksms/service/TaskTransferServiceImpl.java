@@ -0,0 +1,231 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jrb.labs.tasksms.mapping.TaskMapper;
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.model.HistoryType;
+import io.jrb.labs.tasksms.model.LookupValue;
+import io.jrb.labs.tasksms.model.LookupValueType;
+import io.jrb.labs.tasksms.model.Task;
+import io.jrb.labs.tasksms.model.TransferFormat;
+import io.jrb.labs.tasksms.repository.TaskBatchRepository;
+import io.jrb.labs.tasksms.repository.TaskRepository;
+import io.jrb.labs.tasksms.resource.TaskImportResource;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import io.jrb.labs.tasksms.tenant.TenantContext;
+import io.jrb.labs.tasksms.tenant.TenantQuotas;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Service
+@ConditionalOnProperty(name = "tasks.storage.engine", havingValue = "r2dbc", matchIfMissing = true)
+@Slf4j
+public class TaskTransferServiceImpl implements TaskTransferService {
+
+    private static final ResolvableType STRING_TYPE = ResolvableType.forClass(String.class);
+
+    private final TaskRepository taskRepository;
+    private final EntityLookupService entityLookupService;
+    private final TaskBatchRepository taskBatchRepository;
+    private final EntityHistoryService entityHistoryService;
+    private final ShardRouter shardRouter;
+    private final TenantQuotas tenantQuotas;
+    private final Map<TransferFormat, TaskLineCodec> codecs;
+    private final int exportChunkSize;
+    private final int importChunkSize;
+    private final int importParallelism;
+
+    public TaskTransferServiceImpl(
+            final TaskRepository taskRepository,
+            final EntityLookupService entityLookupService,
+            final TaskBatchRepository taskBatchRepository,
+            final EntityHistoryService entityHistoryService,
+            final ShardRouter shardRouter,
+            final TenantQuotas tenantQuotas,
+            final ObjectMapper objectMapper,
+            @Value("${tasks.transfer.export-chunk-size:500}") final int exportChunkSize,
+            @Value("${tasks.transfer.import-chunk-size:500}") final int importChunkSize,
+            @Value("${tasks.transfer.import-parallelism:4}") final int importParallelism
+    ) {
+        this.taskRepository = taskRepository;
+        this.entityLookupService = entityLookupService;
+        this.taskBatchRepository = taskBatchRepository;
+        this.entityHistoryService = entityHistoryService;
+        this.shardRouter = shardRouter;
+        this.tenantQuotas = tenantQuotas;
+        this.codecs = new EnumMap<>(TransferFormat.class);
+        this.codecs.put(TransferFormat.NDJSON, new NdjsonTaskLineCodec(objectMapper));
+        this.codecs.put(TransferFormat.CSV, new CsvTaskLineCodec());
+        this.exportChunkSize = exportChunkSize;
+        this.importChunkSize = importChunkSize;
+        this.importParallelism = importParallelism;
+    }
+
+    @Override
+    public Flux<DataBuffer> exportTasks(final TransferFormat format, final DataBufferFactory bufferFactory) {
+        final TaskLineCodec codec = codecs.get(format);
+        final Flux<DataBuffer> header = Mono.justOrEmpty(codec.header())
+                .map(line -> writeLines(bufferFactory, Collections.singletonList(line)))
+                .flux();
+        final Flux<DataBuffer> body = TenantContext.current()
+                .flatMapMany(tenantId -> shardRouter.readOnly(Flux.fromIterable(shardRouter.shards())
+                        .concatMap(shard -> shardRouter.onShard(shard, exportShard(tenantId)), 1)))
+                .map(resources -> writeLines(bufferFactory, resources.stream()
+                        .map(codec::encode)
+                        .collect(Collectors.toList())));
+        return Flux.concat(header, body);
+    }
+
+    @Override
+    public Mono<TaskImportResource> importTasks(final TransferFormat format, final Flux<DataBuffer> content) {
+        final TaskLineCodec codec = codecs.get(format);
+        final Optional<String> header = codec.header();
+        return TenantContext.current()
+                .flatMap(tenantId -> StringDecoder.allMimeTypes()
+                        .decode(content, STRING_TYPE, null, Collections.emptyMap())
+                        .filter(line -> !line.isBlank() && !header.map(line::equals).orElse(false))
+                        .map(line -> decodeLine(codec, line))
+                        .buffer(importChunkSize)
+                        .flatMap(resources -> importChunk(tenantId, resources), importParallelism)
+                        .reduce(TaskImportResource.builder().build(), TaskImportResource::plus));
+    }
+
+    private Flux<List<TaskResource>> exportShard(final String tenantId) {
+        return findChunk(tenantId, 0L)
+                .expand(chunk -> chunk.size() < exportChunkSize
+                        ? Mono.empty()
+                        : findChunk(tenantId, chunk.get(chunk.size() - 1).getId()))
+                .filter(chunk -> !chunk.isEmpty())
+                .concatMap(this::toResources, 1);
+    }
+
+    private Mono<List<Task>> findChunk(final String tenantId, final long afterId) {
+        return taskRepository.findChunkAfter(tenantId, afterId, exportChunkSize).collectList();
+    }
+
+    private Mono<List<TaskResource>> toResources(final List<Task> tasks) {
+        final List<Long> taskIds = tasks.stream().map(Task::getId).collect(Collectors.toList());
+        return entityLookupService.findLookupValues(EntityType.TASK, taskIds)
+                .map(values -> tasks.stream()
+                        .map(task -> TaskMapper.toResource(task,
+                                values.getOrDefault(task.getId(), Collections.emptyList())))
+                        .collect(Collectors.toList()));
+    }
+
+    private DataBuffer writeLines(final DataBufferFactory bufferFactory, final List<String> lines) {
+        final DataBuffer buffer = bufferFactory.allocateBuffer(lines.size() * 256);
+        lines.forEach(line -> buffer.write(line, StandardCharsets.UTF_8).write((byte) '\n'));
+        return buffer;
+    }
+
+    private TaskResource decodeLine(final TaskLineCodec codec, final String line) {
+        try {
+            return codec.decode(line);
+        } catch (final RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unable to parse task record: " + line, e);
+        }
+    }
+
+    private Mono<TaskImportResource> importChunk(final String tenantId, final List<TaskResource> resources) {
+        final Instant now = Instant.now();
+        final Map<UUID, TaskResource> resourcesByGuid = new LinkedHashMap<>();
+        resources.forEach(resource -> resourcesByGuid.putIfAbsent(
+                Optional.ofNullable(resource.getGuid()).orElseGet(UUID::randomUUID), resource));
+        final Map<Integer, List<UUID>> guidsByShard = resourcesByGuid.keySet().stream()
+                .collect(Collectors.groupingBy(shardRouter::shardFor, LinkedHashMap::new, Collectors.toList()));
+        return Flux.fromIterable(guidsByShard.entrySet())
+                .concatMap(entry -> shardRouter.onShard(entry.getKey(), taskRepository.findGuidsIn(entry.getValue())))
+                .collect(Collectors.toSet())
+                .flatMap(existingGuids -> {
+                    final Map<Integer, List<TaskResource>> resourcesByShard = new LinkedHashMap<>();
+                    final Map<Integer, List<Task>> tasksByShard = new LinkedHashMap<>();
+                    resourcesByGuid.forEach((guid, resource) -> {
+                        if (!existingGuids.contains(guid)) {
+                            final int shard = shardRouter.shardFor(guid);
+                            resourcesByShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(resource);
+                            tasksByShard.computeIfAbsent(shard, key -> new ArrayList<>())
+                                    .add(TaskMapper.toImportedEntity(resource, guid, tenantId, now));
+                        }
+                    });
+                    final int fresh = resourcesByGuid.size() - existingGuids.size();
+                    final long skipped = resources.size() - fresh;
+                    if (fresh == 0) {
+                        return Mono.just(TaskImportResource.builder().skipped(skipped).build());
+                    }
+                    return tenantQuotas.reserveTasks(tenantId, fresh, Flux.fromIterable(tasksByShard.keySet())
+                            .concatMap(shard -> shardRouter.onShardTransactional(shard, importShardChunk(
+                                    resourcesByShard.get(shard), tasksByShard.get(shard), now)))
+                            .reduce(0L, Long::sum))
+                            .map(imported -> TaskImportResource.builder().imported(imported).skipped(skipped).build());
+                });
+    }
+
+    private Mono<Long> importShardChunk(final List<TaskResource> resources, final List<Task> tasks, final Instant now) {
+        return taskBatchRepository.insertTasks(tasks)
+                .collectList()
+                .flatMap(taskIds -> {
+                    final List<LookupValue> lookupValues = new ArrayList<>();
+                    final List<Task> savedTasks = new ArrayList<>(taskIds.size());
+                    for (int i = 0; i < taskIds.size(); i++) {
+                        final long taskId = taskIds.get(i);
+                        final String tenantId = tasks.get(i).getTenantId();
+                        final TaskResource resource = resources.get(i);
+                        resource.getGroups().forEach(value -> lookupValues.add(
+                                LookupValue.of(tenantId, EntityType.TASK, taskId, LookupValueType.GROUP, value)));
+                        resource.getTags().forEach(value -> lookupValues.add(
+                                LookupValue.of(tenantId, EntityType.TASK, taskId, LookupValueType.TAG, value)));
+                        savedTasks.add(tasks.get(i).withId(taskId));
+                    }
+                    return entityLookupService.createLookupValues(lookupValues)
+                            .then(entityHistoryService.recordAll(EntityType.TASK, savedTasks, HistoryType.CREATED, now))
+                            .thenReturn((long) taskIds.size());
+                });
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.settings;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+public class ConfigSnapshotHolder implements ApplicationListener<EnvironmentChangeEvent> {
+
+    private static final String CONFIG_SERVER_SOURCE_PREFIX = "configserver:";
+
+    private final ConfigurableEnvironment environment;
+    private final List<String> keys;
+    private final Path cacheFile;
+    private final AtomicReference<ConfigSnapshot> snapshot;
+
+    private Map<String, String> cached;
+
+    public ConfigSnapshotHolder(
+            final ConfigurableEnvironment environment,
+            final List<String> keys,
+            final Path cacheFile,
+            final MeterRegistry meterRegistry
+    ) {
+        this.environment = environment;
+        this.keys = List.copyOf(keys);
+        this.cacheFile = cacheFile;
+        this.cached = readCache();
+        this.snapshot = new AtomicReference<>(load());
+        Gauge.builder("tasks.config.snapshot.age", snapshot,
+                ref -> Duration.between(ref.get().getLoadedOn(), Instant.now()).toMillis() / 1000.0)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public ConfigSnapshot current() {
+        return snapshot.get();
+    }
+
+    @Override
+    public void onApplicationEvent(final EnvironmentChangeEvent event) {
+        reload();
+    }
+
+    public ConfigSnapshot reload() {
+        final ConfigSnapshot next = load();
+        final ConfigSnapshot previous = snapshot.getAndSet(next);
+        if (!previous.getValues().equals(next.getValues())) {
+            log.info("Config snapshot changed for keys {}", changedKeys(previous, next));
+        }
+        return next;
+    }
+
+    private synchronized ConfigSnapshot load() {
+        final Map<String, String> values = new LinkedHashMap<>();
+        keys.forEach(key -> {
+            final String value = environment.getProperty(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        });
+        if (isConfigServerLoaded()) {
+            final Map<String, String> served = new LinkedHashMap<>();
+            keys.stream()
+                    .filter(this::isServedByConfigServer)
+                    .forEach(key -> served.put(key, values.get(key)));
+            if (!served.equals(cached)) {
+                writeCache(served);
+                cached = Map.copyOf(served);
+            }
+        } else if (!cached.isEmpty()) {
+            log.debug("Config server unavailable; using cached values for {}", cached.keySet());
+            values.putAll(cached);
+        }
+        return new ConfigSnapshot(Map.copyOf(values), Instant.now());
+    }
+
+    private boolean isConfigServerLoaded() {
+        return environment.getPropertySources().stream()
+                .anyMatch(source -> source.getName().startsWith(CONFIG_SERVER_SOURCE_PREFIX));
+    }
+
+    private boolean isServedByConfigServer(final String key) {
+        return environment.getPropertySources().stream()
+                .filter(source -> source.containsProperty(key))
+                .findFirst()
+                .map(source -> source.getName().startsWith(CONFIG_SERVER_SOURCE_PREFIX))
+                .orElse(false);
+    }
+
+    private Map<String, String> readCache() {
+        if (!Files.isRegularFile(cacheFile)) {
+            return Map.of();
+        }
+        final Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (final IOException e) {
+            log.warn("Unable to read cached config snapshot from {}", cacheFile, e);
+            return Map.of();
+        }
+        return keys.stream()
+                .filter(properties::containsKey)
+                .collect(Collectors.toUnmodifiableMap(Function.identity(), properties::getProperty));
+    }
+
+    private void writeCache(final Map<String, String> values) {
+        final Properties properties = new Properties();
+        properties.putAll(values);
+        try {
+            Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+            final Path temp = Files.createTempFile(cacheFile.toAbsolutePath().getParent(), "config", ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "last config served by the config server");
+            }
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            log.warn("Unable to cache config snapshot to {}", cacheFile, e);
+        }
+    }
+
+    private List<String> changedKeys(final ConfigSnapshot previous, final ConfigSnapshot next) {
+        return keys.stream()
+                .filter(key -> !Objects.equals(previous.getValues().get(key), next.getValues().get(key)))
+                .collect(Collectors.toList());
+    }
+
+}
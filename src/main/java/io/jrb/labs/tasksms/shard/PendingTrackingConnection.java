@@ -0,0 +1,136 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.shard;
+
+import io.r2dbc.spi.Batch;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionMetadata;
+import io.r2dbc.spi.IsolationLevel;
+import io.r2dbc.spi.Statement;
+import io.r2dbc.spi.ValidationDepth;
+import io.r2dbc.spi.Wrapped;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class PendingTrackingConnection implements Connection, Wrapped<Connection> {
+
+    private final Connection delegate;
+    private final AtomicInteger pending;
+    private final AtomicBoolean released;
+
+    PendingTrackingConnection(final Connection delegate, final AtomicInteger pending) {
+        this.delegate = delegate;
+        this.pending = pending;
+        this.released = new AtomicBoolean();
+    }
+
+    @Override
+    public Publisher<Void> beginTransaction() {
+        return delegate.beginTransaction();
+    }
+
+    @Override
+    public Publisher<Void> close() {
+        return Mono.from(delegate.close())
+                .doFinally(signal -> {
+                    if (released.compareAndSet(false, true)) {
+                        pending.decrementAndGet();
+                    }
+                });
+    }
+
+    @Override
+    public Publisher<Void> commitTransaction() {
+        return delegate.commitTransaction();
+    }
+
+    @Override
+    public Batch createBatch() {
+        return delegate.createBatch();
+    }
+
+    @Override
+    public Publisher<Void> createSavepoint(final String name) {
+        return delegate.createSavepoint(name);
+    }
+
+    @Override
+    public Statement createStatement(final String sql) {
+        return delegate.createStatement(sql);
+    }
+
+    @Override
+    public boolean isAutoCommit() {
+        return delegate.isAutoCommit();
+    }
+
+    @Override
+    public ConnectionMetadata getMetadata() {
+        return delegate.getMetadata();
+    }
+
+    @Override
+    public IsolationLevel getTransactionIsolationLevel() {
+        return delegate.getTransactionIsolationLevel();
+    }
+
+    @Override
+    public Publisher<Void> releaseSavepoint(final String name) {
+        return delegate.releaseSavepoint(name);
+    }
+
+    @Override
+    public Publisher<Void> rollbackTransaction() {
+        return delegate.rollbackTransaction();
+    }
+
+    @Override
+    public Publisher<Void> rollbackTransactionToSavepoint(final String name) {
+        return delegate.rollbackTransactionToSavepoint(name);
+    }
+
+    @Override
+    public Publisher<Void> setAutoCommit(final boolean autoCommit) {
+        return delegate.setAutoCommit(autoCommit);
+    }
+
+    @Override
+    public Publisher<Void> setTransactionIsolationLevel(final IsolationLevel isolationLevel) {
+        return delegate.setTransactionIsolationLevel(isolationLevel);
+    }
+
+    @Override
+    public Publisher<Boolean> validate(final ValidationDepth depth) {
+        return delegate.validate(depth);
+    }
+
+    @Override
+    public Connection unwrap() {
+        return delegate;
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.shard;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ReplicaRoutingConnectionFactory implements ConnectionFactory {
+
+    private final ConnectionFactory primary;
+    private final List<ConnectionFactory> replicas;
+    private final ReplicaSelection selection;
+    private final AtomicInteger[] pending;
+    private final AtomicLong[] acquired;
+    private final AtomicLong primaryAcquired;
+    private final AtomicInteger primaryInUse;
+    private final AtomicInteger next;
+
+    public ReplicaRoutingConnectionFactory(
+            final ConnectionFactory primary,
+            final List<ConnectionFactory> replicas,
+            final ReplicaSelection selection
+    ) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.selection = selection;
+        this.pending = new AtomicInteger[replicas.size()];
+        this.acquired = new AtomicLong[replicas.size()];
+        for (int replica = 0; replica < replicas.size(); replica++) {
+            pending[replica] = new AtomicInteger();
+            acquired[replica] = new AtomicLong();
+        }
+        this.primaryAcquired = new AtomicLong();
+        this.primaryInUse = new AtomicInteger();
+        this.next = new AtomicInteger();
+    }
+
+    public ConnectionFactory getPrimary() {
+        return primary;
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    public int getPending(final int replica) {
+        return pending[replica].get();
+    }
+
+    public long getAcquired(final int replica) {
+        return acquired[replica].get();
+    }
+
+    public long getPrimaryAcquired() {
+        return primaryAcquired.get();
+    }
+
+    public int getPrimaryInUse() {
+        return primaryInUse.get();
+    }
+
+    public int getInUse() {
+        int inUse = primaryInUse.get();
+        for (final AtomicInteger replicaPending : pending) {
+            inUse += replicaPending.get();
+        }
+        return inUse;
+    }
+
+    @Override
+    public Mono<Connection> create() {
+        return Mono.deferContextual(context -> {
+            final boolean readOnly = context.getOrDefault(ShardRouter.READ_ONLY_KEY, false);
+            final boolean pinned = context.getOrDefault(ShardRouter.PRIMARY_KEY, false);
+            if (replicas.isEmpty() || !readOnly || pinned) {
+                primaryAcquired.incrementAndGet();
+                primaryInUse.incrementAndGet();
+                return Mono.from(primary.create())
+                        .<Connection>map(connection -> new PendingTrackingConnection(connection, primaryInUse))
+                        .doOnError(e -> primaryInUse.decrementAndGet())
+                        .doOnCancel(primaryInUse::decrementAndGet);
+            }
+            final int replica = selectReplica();
+            final AtomicInteger replicaPending = pending[replica];
+            replicaPending.incrementAndGet();
+            acquired[replica].incrementAndGet();
+            return Mono.from(replicas.get(replica).create())
+                    .<Connection>map(connection -> new PendingTrackingConnection(connection, replicaPending))
+                    .doOnError(e -> replicaPending.decrementAndGet())
+                    .doOnCancel(replicaPending::decrementAndGet);
+        });
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return primary.getMetadata();
+    }
+
+    private int selectReplica() {
+        final int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        if (selection == ReplicaSelection.ROUND_ROBIN) {
+            return start;
+        }
+        int selected = start;
+        for (int i = 1; i < replicas.size(); i++) {
+            final int candidate = (start + i) % replicas.size();
+            if (pending[candidate].get() < pending[selected].get()) {
+                selected = candidate;
+            }
+        }
+        return selected;
+    }
+
+}
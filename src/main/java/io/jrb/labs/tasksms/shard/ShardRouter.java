@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.shard;
+
+import org.reactivestreams.Publisher;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class ShardRouter {
+
+    public static final String SHARD_KEY = ShardRouter.class.getName() + ".shard";
+    public static final String READ_ONLY_KEY = ShardRouter.class.getName() + ".readOnly";
+    public static final String PRIMARY_KEY = ShardRouter.class.getName() + ".primary";
+    public static final String DEADLINE_KEY = ShardRouter.class.getName() + ".deadline";
+
+    private final int shardCount;
+    private final TransactionalOperator transactionalOperator;
+
+    public ShardRouter(final int shardCount, final TransactionalOperator transactionalOperator) {
+        this.shardCount = shardCount;
+        this.transactionalOperator = transactionalOperator;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public List<Integer> shards() {
+        return IntStream.range(0, shardCount).boxed().collect(Collectors.toList());
+    }
+
+    public int shardFor(final UUID guid) {
+        return Math.floorMod(guid.hashCode(), shardCount);
+    }
+
+    public <T> Mono<T> route(final UUID guid, final Mono<T> mono) {
+        return onShard(shardFor(guid), mono);
+    }
+
+    public <T> Flux<T> route(final UUID guid, final Flux<T> flux) {
+        return onShard(shardFor(guid), flux);
+    }
+
+    public <T> Mono<T> routeTransactional(final UUID guid, final Mono<T> mono) {
+        return onShard(shardFor(guid), transactionalOperator.transactional(mono));
+    }
+
+    public <T> Mono<T> onShard(final int shard, final Mono<T> mono) {
+        return Mono.deferContextual(context -> context.<LongSupplier>getOrEmpty(DEADLINE_KEY)
+                .map(deadline -> mono.timeout(remaining(deadline)))
+                .orElse(mono))
+                .contextWrite(context -> context.put(SHARD_KEY, shard));
+    }
+
+    public <T> Flux<T> onShard(final int shard, final Flux<T> flux) {
+        return Flux.deferContextual(context -> context.<LongSupplier>getOrEmpty(DEADLINE_KEY)
+                .map(deadline -> flux.timeout(Mono.delay(remaining(deadline)), item -> Mono.delay(remaining(deadline))))
+                .orElse(flux))
+                .contextWrite(context -> context.put(SHARD_KEY, shard));
+    }
+
+    public <T> Mono<T> onShardTransactional(final int shard, final Mono<T> mono) {
+        return onShard(shard, transactionalOperator.transactional(mono));
+    }
+
+    public <T> Flux<T> onShardTransactional(final int shard, final Flux<T> flux) {
+        return onShard(shard, transactionalOperator.transactional(flux));
+    }
+
+    public <T> Mono<T> readOnly(final Mono<T> mono) {
+        return mono.contextWrite(context -> context.put(READ_ONLY_KEY, true));
+    }
+
+    public <T> Flux<T> readOnly(final Flux<T> flux) {
+        return flux.contextWrite(context -> context.put(READ_ONLY_KEY, true));
+    }
+
+    public <T> Flux<T> scatter(final IntFunction<? extends Publisher<T>> query) {
+        return Flux.merge(Flux.fromIterable(shards())
+                .map(shard -> onShard(shard, Flux.from(query.apply(shard)))));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Flux<T> scatterOrdered(
+            final Comparator<? super T> comparator,
+            final IntFunction<? extends Publisher<T>> query
+    ) {
+        final Publisher<T>[] sources = shards().stream()
+                .map(shard -> onShard(shard, Flux.from(query.apply(shard))))
+                .toArray(Publisher[]::new);
+        return Flux.mergeOrdered(comparator, sources);
+    }
+
+    private static Duration remaining(final LongSupplier deadline) {
+        return Duration.ofNanos(Math.max(0L, deadline.getAsLong() - System.nanoTime()));
+    }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.tenant;
+
+import io.jrb.labs.tasksms.schedule.PeriodicJob;
+import io.jrb.labs.tasksms.schedule.PeriodicJobSupport;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+@Slf4j
+public class TenantQuotas extends PeriodicJobSupport {
+
+    public static final String OTHER_TENANT_TAG = "other";
+
+    private static final long WINDOW_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private final int requestsPerSecond;
+    private final long maxTasks;
+    private final long recountNanos;
+    private final Set<String> meteredTenants;
+    private final Function<String, Mono<Long>> taskCounter;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AtomicLong> requestWindows;
+    private final Map<String, TaskCount> taskCounts;
+    private final ConcurrentMap<String, Mono<TaskCount>> recounts;
+
+    public TenantQuotas(
+            final int requestsPerSecond,
+            final long maxTasks,
+            final Duration recountInterval,
+            final int maxTrackedTenants,
+            final Collection<String> meteredTenants,
+            final Function<String, Mono<Long>> taskCounter,
+            final MeterRegistry meterRegistry
+    ) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.maxTasks = maxTasks;
+        this.recountNanos = recountInterval.toNanos();
+        this.meteredTenants = Set.copyOf(meteredTenants);
+        this.taskCounter = taskCounter;
+        this.meterRegistry = meterRegistry;
+        this.requestWindows = boundedMap(maxTrackedTenants);
+        this.taskCounts = boundedMap(maxTrackedTenants);
+        this.recounts = new ConcurrentHashMap<>();
+        meterRegistry.gaugeMapSize("tasks.tenancy.tenants", List.of(), requestWindows);
+        register(PeriodicJob.every(recountInterval, "expire tenant quota state",
+                () -> Mono.fromRunnable(this::cleanUp)));
+        log.info("Tenant quotas allow {} requests/s and {} tasks per tenant (0 = unlimited), tracking {} tenants",
+                requestsPerSecond, maxTasks, maxTrackedTenants);
+    }
+
+    public boolean tryAcquireRequest(final String tenantId) {
+        if (requestsPerSecond <= 0) {
+            return true;
+        }
+        final AtomicLong window = requestWindows.computeIfAbsent(tenantId, key -> new AtomicLong());
+        final long current = currentWindow();
+        while (true) {
+            final long state = window.get();
+            final long next;
+            if (state >>> 32 != current) {
+                next = (current << 32) | 1;
+            } else if ((int) state >= requestsPerSecond) {
+                reject(tenantId, "requests");
+                return false;
+            } else {
+                next = state + 1;
+            }
+            if (window.compareAndSet(state, next)) {
+                return true;
+            }
+        }
+    }
+
+    public <T> Mono<T> reserveTasks(final String tenantId, final int count, final Mono<T> operation) {
+        if (maxTasks <= 0 || count <= 0) {
+            return operation;
+        }
+        return taskCount(tenantId)
+                .flatMap(tasks -> {
+                    if (tasks.getCount().addAndGet(count) > maxTasks) {
+                        tasks.getCount().addAndGet(-count);
+                        reject(tenantId, "tasks");
+                        return Mono.error(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                                "Tenant " + tenantId + " has reached its quota of " + maxTasks + " tasks"));
+                    }
+                    final AtomicBoolean succeeded = new AtomicBoolean();
+                    return operation
+                            .doOnSuccess(result -> succeeded.set(true))
+                            .doFinally(signal -> {
+                                if (!succeeded.get()) {
+                                    release(tenantId, tasks, count);
+                                }
+                            });
+                });
+    }
+
+    public void releaseTasks(final String tenantId, final int count) {
+        final TaskCount tasks = taskCounts.get(tenantId);
+        if (tasks != null) {
+            release(tenantId, tasks, count);
+        }
+    }
+
+    private void release(final String tenantId, final TaskCount tasks, final int count) {
+        if (count > 0 && taskCounts.get(tenantId) == tasks) {
+            tasks.getCount().addAndGet(-count);
+        }
+    }
+
+    private Mono<TaskCount> taskCount(final String tenantId) {
+        final TaskCount cached = taskCounts.get(tenantId);
+        if (cached != null && cached.getExpiresAt() - System.nanoTime() > 0) {
+            return Mono.just(cached);
+        }
+        return recounts.computeIfAbsent(tenantId, key -> taskCounter.apply(key)
+                .map(count -> {
+                    final TaskCount counted = new TaskCount(new AtomicLong(count), System.nanoTime() + recountNanos);
+                    taskCounts.put(key, counted);
+                    return counted;
+                })
+                .doFinally(signal -> recounts.remove(key))
+                .cache());
+    }
+
+    private void cleanUp() {
+        final long window = currentWindow();
+        synchronized (requestWindows) {
+            requestWindows.values().removeIf(state -> state.get() >>> 32 != window);
+        }
+        final long now = System.nanoTime();
+        synchronized (taskCounts) {
+            taskCounts.values().removeIf(tasks -> tasks.getExpiresAt() - now <= 0);
+        }
+    }
+
+    private void reject(final String tenantId, final String quota) {
+        final String tenantTag = meteredTenants.contains(tenantId) ? tenantId : OTHER_TENANT_TAG;
+        meterRegistry.counter("tasks.tenancy.rejected", "tenant", tenantTag, "quota", quota).increment();
+    }
+
+    private static long currentWindow() {
+        return (System.nanoTime() / WINDOW_NANOS) & 0xFFFFFFFFL;
+    }
+
+    private static <V> Map<String, V> boundedMap(final int capacity) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, V> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    @Value
+    private static class TaskCount {
+        AtomicLong count;
+        long expiresAt;
+    }
+
+}
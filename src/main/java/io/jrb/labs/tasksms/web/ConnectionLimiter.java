@@ -0,0 +1,60 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.web;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.netty.Connection;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+@Slf4j
+public class ConnectionLimiter implements Consumer<Connection> {
+
+    private final int maxConnections;
+    private final AtomicInteger active = new AtomicInteger();
+    private final Counter rejected;
+
+    public ConnectionLimiter(final int maxConnections, final MeterRegistry meterRegistry) {
+        this.maxConnections = maxConnections;
+        Gauge.builder("tasks.web.connections.active", active, AtomicInteger::get).register(meterRegistry);
+        this.rejected = Counter.builder("tasks.web.connections.rejected").register(meterRegistry);
+    }
+
+    @Override
+    public void accept(final Connection connection) {
+        final int current = active.incrementAndGet();
+        connection.onDispose(active::decrementAndGet);
+        if (maxConnections > 0 && current > maxConnections) {
+            rejected.increment();
+            log.debug("Rejecting connection from {}; {} of {} connections in use",
+                    connection.channel().remoteAddress(), current - 1, maxConnections);
+            connection.dispose();
+        }
+    }
+
+}
@@ -1,27 +1,102 @@
 CREATE TABLE IF NOT EXISTS t_history (
     hi_id SERIAL PRIMARY KEY,
+    tenant_id VARCHAR(64) DEFAULT 'default' NOT NULL,
     entity_type VARCHAR(64) NOT NULL,
     entity_id NUMBER,
+    entity_guid UUID,
     event_type VARCHAR(64) NOT NULL,
     created_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+CREATE INDEX IF NOT EXISTS ix_history_entity ON t_history (tenant_id, entity_type, entity_id, hi_id);
+
 CREATE TABLE IF NOT EXISTS t_lookup_value (
     lv_id SERIAL PRIMARY KEY,
+    tenant_id VARCHAR(64) DEFAULT 'default' NOT NULL,
     entity_type VARCHAR(64) NOT NULL,
     entity_id NUMBER,
     lookup_value_type VARCHAR(64) NOT NULL,
     lookup_value VARCHAR(64) NOT NULL
 );
 
+CREATE INDEX IF NOT EXISTS ix_lookup_value ON t_lookup_value (tenant_id, entity_type, lookup_value_type, lookup_value);
+CREATE INDEX IF NOT EXISTS ix_lookup_value_entity ON t_lookup_value (tenant_id, entity_type, entity_id);
+
 CREATE TABLE IF NOT EXISTS t_task (
     ta_id SERIAL PRIMARY KEY,
     guid UUID NOT NULL,
+    tenant_id VARCHAR(64) DEFAULT 'default' NOT NULL,
     name VARCHAR(64) NOT NULL,
     description VARCHAR(256),
+    status VARCHAR(16) DEFAULT 'PENDING' NOT NULL,
+    lease_id UUID,
+    lease_expires_on TIMESTAMP,
+    due_on TIMESTAMP,
+    recurrence VARCHAR(128),
+    deleted_on TIMESTAMP,
     created_by VARCHAR(64),
     created_on TIMESTAMP,
     modified_by VARCHAR(64),
     modified_on TIMESTAMP
 );
 
+CREATE INDEX IF NOT EXISTS ix_task_guid ON t_task (tenant_id, guid, deleted_on);
+CREATE UNIQUE INDEX IF NOT EXISTS ux_task_guid ON t_task (guid);
+CREATE INDEX IF NOT EXISTS ix_task_status ON t_task (tenant_id, status, deleted_on, created_on, guid);
+CREATE INDEX IF NOT EXISTS ix_task_created ON t_task (tenant_id, deleted_on, created_on, guid);
+CREATE INDEX IF NOT EXISTS ix_task_lease ON t_task (tenant_id, lease_id);
+CREATE INDEX IF NOT EXISTS ix_task_lease_expiry ON t_task (status, lease_expires_on, tenant_id);
+CREATE INDEX IF NOT EXISTS ix_task_due ON t_task (status, deleted_on, due_on, ta_id, tenant_id);
+
+
+CREATE TABLE IF NOT EXISTS t_outbox (
+    ob_id SERIAL PRIMARY KEY,
+    event_id UUID NOT NULL UNIQUE,
+    tenant_id VARCHAR(64) DEFAULT 'default' NOT NULL,
+    entity_type VARCHAR(64) NOT NULL,
+    entity_id NUMBER,
+    entity_guid UUID NOT NULL,
+    event_type VARCHAR(64) NOT NULL,
+    created_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS t_history_rollup (
+    tenant_id VARCHAR(64) DEFAULT 'default' NOT NULL,
+    bucket_size VARCHAR(16) NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    entity_type VARCHAR(64) NOT NULL,
+    event_type VARCHAR(64) NOT NULL,
+    event_count BIGINT NOT NULL,
+    PRIMARY KEY (tenant_id, bucket_size, bucket_start, entity_type, event_type)
+);
+
+CREATE TABLE IF NOT EXISTS t_history_rollup_mark (
+    rm_id INT PRIMARY KEY,
+    last_history_id BIGINT NOT NULL
+);
+
+INSERT INTO t_history_rollup_mark (rm_id, last_history_id)
+    SELECT 1, 0 FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM t_history_rollup_mark WHERE rm_id = 1);
+
+CREATE TABLE IF NOT EXISTS t_idempotency_key (
+    idem_key VARCHAR(256) PRIMARY KEY,
+    fingerprint VARCHAR(64) NOT NULL,
+    response VARCHAR(1048576),
+    expires_on TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS ix_idempotency_key_expires ON t_idempotency_key (expires_on);
+
+CREATE TABLE IF NOT EXISTS t_scheduler_lease (
+    lease_name VARCHAR(64) PRIMARY KEY,
+    owner VARCHAR(128),
+    expires_on TIMESTAMP NOT NULL
+);
+
+INSERT INTO t_scheduler_lease (lease_name, owner, expires_on)
+    SELECT 'task-scheduler', NULL, TIMESTAMP '1970-01-01 00:00:00' FROM DUAL
+    WHERE NOT EXISTS (SELECT 1 FROM t_scheduler_lease WHERE lease_name = 'task-scheduler');
+
+INSERT INTO t_scheduler_lease (lease_name, owner, expires_on)
+    SELECT 'outbox-relay', NULL, TIMESTAMP '1970-01-01 00:00:00' FROM DUAL
+    WHERE NOT EXISTS (SELECT 1 FROM t_scheduler_lease WHERE lease_name = 'outbox-relay');
@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.cache;
+
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.model.History;
+import io.jrb.labs.tasksms.model.HistoryType;
+import io.jrb.labs.tasksms.repository.HistoryRepository;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HistoryInvalidationPollerTests {
+
+    private static final Duration SETTLE_DELAY = Duration.ofMillis(200);
+
+    private final List<History> visible = new CopyOnWriteArrayList<>();
+    private final List<Long> broadcast = new ArrayList<>();
+
+    private HistoryInvalidationPoller poller;
+
+    @BeforeEach
+    void createPoller() {
+        final HistoryRepository historyRepository = mock(HistoryRepository.class);
+        when(historyRepository.findBatchAfter(anyLong(), anyInt())).thenAnswer(invocation -> {
+            final long afterId = invocation.getArgument(0);
+            final int limit = invocation.getArgument(1);
+            return Flux.fromIterable(visible.stream()
+                    .filter(history -> history.getId() > afterId)
+                    .sorted(Comparator.comparingLong(History::getId))
+                    .limit(limit)
+                    .collect(Collectors.toList()));
+        });
+        final CacheInvalidationTransport transport = new CacheInvalidationTransport() {
+            @Override
+            public Mono<Void> broadcast(final List<TaskInvalidation> invalidations) {
+                invalidations.forEach(invalidation -> broadcast.add(invalidation.getVersion()));
+                return Mono.empty();
+            }
+
+            @Override
+            public Flux<TaskInvalidation> invalidations() {
+                return Flux.empty();
+            }
+        };
+        poller = new HistoryInvalidationPoller(historyRepository, transport, new ShardRouter(1, null),
+                Duration.ofSeconds(1), SETTLE_DELAY, 2);
+    }
+
+    @Test
+    void picksUpRowsThatCommitBehindAHigherId() throws InterruptedException {
+        final Instant old = Instant.now().minusSeconds(60);
+        visible.add(history(1, old));
+        visible.add(history(3, Instant.now()));
+        poller.poll().block();
+        assertThat(broadcast).containsExactly(1L, 3L);
+
+        visible.add(history(2, Instant.now()));
+        visible.add(history(4, Instant.now()));
+        poller.poll().block();
+        assertThat(broadcast).containsExactly(1L, 3L, 2L, 4L);
+
+        Thread.sleep(SETTLE_DELAY.multipliedBy(2).toMillis());
+        poller.poll().block();
+        assertThat(broadcast).containsExactly(1L, 3L, 2L, 4L);
+    }
+
+    @Test
+    void treatsRowsWithoutACreationTimeAsSettled() {
+        visible.add(history(1, null));
+        visible.add(history(2, null));
+        visible.add(history(3, null));
+        poller.poll().block();
+        poller.poll().block();
+
+        assertThat(broadcast).containsExactly(1L, 2L, 3L);
+    }
+
+    private static History history(final long id, final Instant createdOn) {
+        return History.builder()
+                .id(id)
+                .tenantId("acme")
+                .entityType(EntityType.TASK)
+                .entityId(id)
+                .entityGuid(UUID.randomUUID())
+                .eventType(HistoryType.UPDATED)
+                .createdOn(createdOn)
+                .build();
+    }
+
+}
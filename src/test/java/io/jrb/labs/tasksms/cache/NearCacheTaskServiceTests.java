@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.cache;
+
+import io.jrb.labs.tasksms.model.Projection;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import io.jrb.labs.tasksms.service.TaskService;
+import io.jrb.labs.tasksms.tenant.TenantContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NearCacheTaskServiceTests {
+
+    private final UUID first = UUID.randomUUID();
+    private final UUID second = UUID.randomUUID();
+    private final UUID third = UUID.randomUUID();
+
+    private TaskService delegate;
+    private SimpleMeterRegistry meterRegistry;
+    private NearCacheTaskService cache;
+
+    @BeforeEach
+    void createCache() {
+        delegate = mock(TaskService.class);
+        when(delegate.findTaskByGuid(any(), any())).thenAnswer(invocation -> Mono.just(TaskResource.builder()
+                .guid(invocation.getArgument(0))
+                .name("cached")
+                .build()));
+        final CacheInvalidationTransport transport = mock(CacheInvalidationTransport.class);
+        when(transport.invalidations()).thenReturn(Flux.never());
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new NearCacheTaskService(delegate, transport, meterRegistry, Duration.ofMinutes(1), 2);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyReadEntry() {
+        read(first);
+        read(second);
+        read(first);
+        read(third);
+
+        read(first);
+        read(third);
+        read(second);
+
+        verify(delegate, times(1)).findTaskByGuid(first, Projection.SUMMARY);
+        verify(delegate, times(2)).findTaskByGuid(second, Projection.SUMMARY);
+        verify(delegate, times(1)).findTaskByGuid(third, Projection.SUMMARY);
+        assertThat(meterRegistry.counter("tasks.cache.evictions").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void keepsCachedTasksToTheirTenant() {
+        read(first);
+        cache.findTaskByGuid(first, Projection.SUMMARY).contextWrite(TenantContext.of("other")).block();
+
+        verify(delegate, times(2)).findTaskByGuid(first, Projection.SUMMARY);
+    }
+
+    private void read(final UUID guid) {
+        cache.findTaskByGuid(guid, Projection.SUMMARY).contextWrite(TenantContext.of("acme")).block();
+    }
+
+}
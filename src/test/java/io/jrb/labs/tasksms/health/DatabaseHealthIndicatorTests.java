@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.health;
+
+import io.jrb.labs.tasksms.repository.OutboxEventRepository;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import io.jrb.labs.tasksms.shard.ShardRoutingConnectionFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class DatabaseHealthIndicatorTests {
+
+    private final DatabaseHealthProbe probe = new DatabaseHealthProbe(mock(DatabaseClient.class),
+            mock(OutboxEventRepository.class), mock(ShardRouter.class), mock(ShardRoutingConnectionFactory.class),
+            mock(ApplicationEventPublisher.class), new SimpleMeterRegistry(), Duration.ofSeconds(5),
+            Duration.ofSeconds(2), Duration.ofMillis(250), 64, 0.9, 10_000L, 3, 2);
+    private final DatabaseHealthIndicator indicator = new DatabaseHealthIndicator(probe, 3);
+
+    @Test
+    void staysUpThroughAnIsolatedProbeError() {
+        probe.evaluate(healthy());
+        probe.evaluate(failed());
+
+        final Health health = indicator.health().block();
+
+        assertThat(health).isNotNull();
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsEntry("consecutiveErrors", 1).containsKey("error");
+    }
+
+    @Test
+    void reportsDownAfterConsecutiveProbeErrors() {
+        probe.evaluate(failed());
+        probe.evaluate(failed());
+        probe.evaluate(failed());
+
+        assertThat(status()).isEqualTo(Status.DOWN);
+
+        probe.evaluate(healthy());
+
+        assertThat(status()).isEqualTo(Status.OUT_OF_SERVICE);
+    }
+
+    @Test
+    void reportsOutOfServiceWhileRefusingTrafficAndUpOnceRecovered() {
+        probe.evaluate(overloaded());
+        probe.evaluate(overloaded());
+        assertThat(status()).isEqualTo(Status.UP);
+
+        probe.evaluate(overloaded());
+        assertThat(status()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        probe.evaluate(healthy());
+        probe.evaluate(healthy());
+        assertThat(status()).isEqualTo(Status.UP);
+    }
+
+    private Status status() {
+        final Health health = indicator.health().block();
+        assertThat(health).isNotNull();
+        return health.getStatus();
+    }
+
+    private static DatabaseHealthSample healthy() {
+        return sample().build();
+    }
+
+    private static DatabaseHealthSample overloaded() {
+        return sample().latency(Duration.ofSeconds(1)).overloaded(true).build();
+    }
+
+    private static DatabaseHealthSample failed() {
+        return sample().latency(Duration.ofSeconds(2)).error("TimeoutException: probe").overloaded(true).build();
+    }
+
+    private static DatabaseHealthSample.DatabaseHealthSampleBuilder sample() {
+        return DatabaseHealthSample.builder()
+                .sampledOn(Instant.now())
+                .latency(Duration.ofMillis(5));
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotentRequestCoordinatorTests {
+
+    private static final TaskResource REQUEST = TaskResource.builder().name("task").build();
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private final IdempotentRequestCoordinator coordinator = new IdempotentRequestCoordinator(
+            new InMemoryIdempotencyKeyStore(100), new ObjectMapper(), new SimpleMeterRegistry(),
+            Duration.ofMinutes(1), Duration.ofMinutes(1));
+
+    @Test
+    void replaysTheStoredResponseForARepeatedKey() {
+        final TaskResource first = execute("key", REQUEST).block();
+        final TaskResource second = execute("key", REQUEST).block();
+
+        assertThat(executions).hasValue(1);
+        assertThat(second).isEqualTo(first);
+    }
+
+    @Test
+    void concurrentRequestsJoinTheInFlightExecution() {
+        final Sinks.One<TaskResource> result = Sinks.one();
+        final Mono<TaskResource> first = coordinator.execute("ns", "key", REQUEST, TaskResource.class, () -> {
+            executions.incrementAndGet();
+            return result.asMono();
+        });
+        final Mono<TaskResource> second = execute("key", REQUEST);
+
+        final TaskResource[] responses = new TaskResource[2];
+        first.subscribe(resource -> responses[0] = resource);
+        second.subscribe(resource -> responses[1] = resource);
+        result.tryEmitValue(TaskResource.builder().guid(UUID.randomUUID()).name("task").build());
+
+        assertThat(executions).hasValue(1);
+        assertThat(responses[0]).isNotNull().isEqualTo(responses[1]);
+    }
+
+    @Test
+    void failedExecutionReleasesTheKeyForARetry() {
+        final Mono<TaskResource> failing = coordinator.execute("ns", "key", REQUEST, TaskResource.class,
+                () -> Mono.error(new IllegalStateException("boom")));
+        assertThatThrownBy(failing::block).isInstanceOf(IllegalStateException.class);
+
+        assertThat(execute("key", REQUEST).block()).isNotNull();
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void rejectsADifferentRequestBodyForAUsedKey() {
+        execute("key", REQUEST).block();
+
+        final Mono<TaskResource> different = execute("key", TaskResource.builder().name("other").build());
+
+        assertThatThrownBy(different::block)
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void rejectsARequestWhileTheKeyIsReservedElsewhere() {
+        final InMemoryIdempotencyKeyStore store = new InMemoryIdempotencyKeyStore(100);
+        final IdempotentRequestCoordinator other = new IdempotentRequestCoordinator(
+                store, new ObjectMapper(), new SimpleMeterRegistry(), Duration.ofMinutes(1), Duration.ofMinutes(1));
+        final IdempotentRequestCoordinator local = new IdempotentRequestCoordinator(
+                store, new ObjectMapper(), new SimpleMeterRegistry(), Duration.ofMinutes(1), Duration.ofMinutes(1));
+        other.execute("ns", "key", REQUEST, TaskResource.class, () -> Mono.never()).subscribe();
+
+        final Mono<TaskResource> duplicate = local.execute("ns", "key", REQUEST, TaskResource.class,
+                () -> Mono.just(REQUEST));
+
+        assertThatThrownBy(duplicate::block)
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.CONFLICT));
+    }
+
+    @Test
+    void abandonedReservationsExpireAfterThePendingTtl() throws InterruptedException {
+        final InMemoryIdempotencyKeyStore store = new InMemoryIdempotencyKeyStore(100);
+        final IdempotentRequestCoordinator crashed = new IdempotentRequestCoordinator(
+                store, new ObjectMapper(), new SimpleMeterRegistry(), Duration.ofMinutes(1), Duration.ofMillis(100));
+        final IdempotentRequestCoordinator retry = new IdempotentRequestCoordinator(
+                store, new ObjectMapper(), new SimpleMeterRegistry(), Duration.ofMinutes(1), Duration.ofMillis(100));
+        crashed.execute("ns", "key", REQUEST, TaskResource.class, () -> Mono.never()).subscribe();
+
+        Thread.sleep(200);
+        final TaskResource first = retry.execute("ns", "key", REQUEST, TaskResource.class,
+                () -> Mono.just(REQUEST.toBuilder().guid(UUID.randomUUID()).build())).block();
+        Thread.sleep(200);
+        final TaskResource replayed = retry.execute("ns", "key", REQUEST, TaskResource.class,
+                () -> Mono.error(new IllegalStateException("executed twice"))).block();
+
+        assertThat(replayed).isEqualTo(first);
+    }
+
+    @Test
+    void acceptsKeysUpToTheMaximumLengthRegardlessOfNamespace() {
+        final String longest = "k".repeat(IdempotentRequestCoordinator.MAX_KEY_LENGTH);
+
+        assertThat(execute(longest, REQUEST).block()).isNotNull();
+        assertThatThrownBy(() -> execute(longest + "k", REQUEST).block())
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    private Mono<TaskResource> execute(final String key, final TaskResource request) {
+        return coordinator.execute("ns", key, request, TaskResource.class, () -> {
+            executions.incrementAndGet();
+            return Mono.just(request.toBuilder().guid(UUID.randomUUID()).build());
+        });
+    }
+
+}
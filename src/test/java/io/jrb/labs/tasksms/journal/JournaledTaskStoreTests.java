@@ -0,0 +1,183 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jrb.labs.tasksms.model.LookupValueType;
+import io.jrb.labs.tasksms.model.TaskStatus;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JournaledTaskStoreTests {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @TempDir
+    Path directory;
+
+    private JournaledTaskStore store;
+
+    @AfterEach
+    void closeStore() throws IOException {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    void recoversInsertsUpdatesAndDeletesFromTheJournal() throws IOException {
+        store = open();
+        final TaskResource kept = task("kept", "ops");
+        final TaskResource removed = task("removed", "ops");
+        store.insert("acme", kept).block();
+        store.insert("acme", removed).block();
+        store.update(kept.getGuid(), task -> task.toBuilder().status(TaskStatus.RUNNING).build()).block();
+        store.delete(removed.getGuid()).block();
+        store.close();
+
+        store = open();
+
+        assertThat(store.findAll()).hasSize(1);
+        final StoredTask recovered = store.findByGuid(kept.getGuid()).orElseThrow();
+        assertThat(recovered.getTenantId()).isEqualTo("acme");
+        assertThat(recovered.getTask().getStatus()).isEqualTo(TaskStatus.RUNNING);
+        assertThat(store.findByGuid(removed.getGuid())).isEmpty();
+        assertThat(store.findByStatus(TaskStatus.RUNNING, 0L)).extracting(StoredTask::getId)
+                .containsExactly(recovered.getId());
+        assertThat(store.findByLookupValue(LookupValueType.GROUP, "ops")).hasSize(1);
+    }
+
+    @Test
+    void ignoresTornTrailingRecord() throws IOException {
+        store = open();
+        final TaskResource task = task("durable", "ops");
+        store.insert("acme", task).block();
+        store.close();
+        try (Stream<Path> segments = Files.list(directory)) {
+            final Path segment = segments.filter(file -> file.getFileName().toString().startsWith("journal-"))
+                    .findFirst()
+                    .orElseThrow();
+            Files.write(segment, "{\"sequence\":2,\"operation\":\"PU".getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+        }
+
+        store = open();
+
+        assertThat(store.findAll()).extracting(stored -> stored.getTask().getGuid()).containsExactly(task.getGuid());
+        final TaskResource next = task("next", "ops");
+        store.insert("acme", next).block();
+        assertThat(store.findByGuid(next.getGuid())).isPresent();
+    }
+
+    @Test
+    void recoversFromSnapshotPlusLaterJournalSegments() throws IOException {
+        store = open();
+        final TaskResource first = task("first", "ops");
+        store.insert("acme", first).block();
+        final long snapshotSequence = store.snapshot().block();
+        final TaskResource second = task("second", "dev");
+        store.insert("acme", second).block();
+        store.close();
+
+        assertThat(snapshotSequence).isEqualTo(1L);
+        assertThat(journalSegments()).allMatch(name -> name.compareTo("journal-00000000000000000002.log") >= 0);
+
+        store = open();
+
+        assertThat(store.findAll()).extracting(stored -> stored.getTask().getName())
+                .containsExactly("first", "second");
+        assertThat(store.findAll()).extracting(StoredTask::getId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void groupCommitsConcurrentWritesAndAppliesAllOfThem() throws IOException {
+        store = open();
+        final List<TaskResource> tasks = Stream.generate(() -> task("bulk", "ops")).limit(200)
+                .collect(Collectors.toList());
+
+        Flux.fromIterable(tasks)
+                .flatMap(task -> store.insert("acme", task), 64)
+                .blockLast();
+        store.close();
+        store = open();
+
+        assertThat(store.findAll()).hasSize(tasks.size());
+    }
+
+    @Test
+    void failsWritesAfterCloseWithoutApplyingThem() throws IOException {
+        store = open();
+        store.close();
+        final TaskResource task = task("late", "ops");
+
+        assertThatThrownBy(() -> store.insert("acme", task).block())
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(store.findByGuid(task.getGuid())).isEmpty();
+        store = null;
+    }
+
+    private JournaledTaskStore open() throws IOException {
+        final JournaledTaskStore taskStore = new JournaledTaskStore(
+                new TaskJournal(directory, objectMapper, 16),
+                new TaskSnapshotStore(directory.resolve("tasks.snapshot"), objectMapper)
+        );
+        taskStore.recover();
+        return taskStore;
+    }
+
+    private List<String> journalSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("journal-"))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static TaskResource task(final String name, final String group) {
+        return TaskResource.builder()
+                .guid(UUID.randomUUID())
+                .name(name)
+                .status(TaskStatus.PENDING)
+                .group(group)
+                .build();
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.mapping;
+
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.model.LookupValue;
+import io.jrb.labs.tasksms.model.LookupValueType;
+import io.jrb.labs.tasksms.model.Task;
+import io.jrb.labs.tasksms.model.TaskStatus;
+import io.jrb.labs.tasksms.repository.TaskRepository;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TaskMapperTests {
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Test
+    void everyTaskColumnSurvivesARoundTripThroughTheRowMapper() {
+        final Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        final Task task = new Task(null, UUID.randomUUID(), "test-mapper", "name", "description", TaskStatus.RUNNING,
+                UUID.randomUUID(), now.plusSeconds(30), now.plusSeconds(60), "PT1H", now.minusSeconds(5),
+                "creator", now.minusSeconds(60), "modifier", now.minusSeconds(30));
+
+        final Task saved = shardRouter.onShard(0, taskRepository.save(task)).block();
+        assertThat(saved).isNotNull();
+        final Task loaded = shardRouter.onShard(0, taskRepository.findById(saved.getId())).block();
+
+        assertThat(loaded).isEqualTo(task.withId(saved.getId()));
+    }
+
+    @Test
+    void importedResourcesKeepEveryField() {
+        final Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        final TaskResource resource = new TaskResource(UUID.randomUUID(), "name", "description", TaskStatus.STOPPED,
+                now.plusSeconds(60), "PT1H", "creator", now.minusSeconds(60), "modifier", now.minusSeconds(30),
+                List.of("ops"), List.of("urgent"));
+
+        final Task task = TaskMapper.toImportedEntity(resource, resource.getGuid(), "test-mapper", now);
+
+        assertThat(task.getTenantId()).isEqualTo("test-mapper");
+        assertThat(TaskMapper.toResource(task, List.of(
+                LookupValue.of("test-mapper", EntityType.TASK, 1L, LookupValueType.GROUP, "ops"),
+                LookupValue.of("test-mapper", EntityType.TASK, 1L, LookupValueType.TAG, "urgent"))))
+                .isEqualTo(resource);
+    }
+
+    @Test
+    void importedResourcesDefaultStatusAndTimestamps() {
+        final Instant now = Instant.now();
+        final TaskResource resource = TaskResource.builder().name("name").build();
+
+        final Task task = TaskMapper.toImportedEntity(resource, UUID.randomUUID(), "test-mapper", now);
+
+        assertThat(task.getStatus()).isEqualTo(TaskStatus.PENDING);
+        assertThat(task.getCreatedOn()).isEqualTo(now);
+        assertThat(task.getModifiedOn()).isEqualTo(now);
+    }
+
+    @Test
+    void overridesStatusAndModificationTimeOfAnEndedLease() {
+        final Instant now = Instant.now();
+        final Task task = TaskMapper.toEntity(TaskResource.builder().name("name").build(), UUID.randomUUID(),
+                "test-mapper", TaskStatus.RUNNING, null, now.minusSeconds(60));
+
+        final TaskResource resource = TaskMapper.toResource(task, TaskStatus.STOPPED, now);
+
+        assertThat(resource.getStatus()).isEqualTo(TaskStatus.STOPPED);
+        assertThat(resource.getModifiedOn()).isEqualTo(now);
+        assertThat(resource).isEqualTo(TaskMapper.toResource(task).toBuilder()
+                .status(TaskStatus.STOPPED)
+                .modifiedOn(now)
+                .build());
+    }
+
+}
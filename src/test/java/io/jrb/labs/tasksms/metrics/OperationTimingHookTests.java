@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OperationTimingHookTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OperationTimingHook hook = new OperationTimingHook(meterRegistry, "timed.");
+
+    @AfterEach
+    void removeHook() {
+        hook.destroy();
+    }
+
+    @Test
+    void timesNamedChainsByOutcome() {
+        timed(Mono.just("ok"), "read").block();
+        assertThatThrownBy(() -> timed(Mono.error(new IllegalStateException("boom")), "write").block())
+                .isInstanceOf(IllegalStateException.class);
+        timed(Flux.range(0, 10), "list").take(2).blockLast();
+
+        assertThat(count("read", "success")).isEqualTo(1);
+        assertThat(count("write", "error")).isEqualTo(1);
+        assertThat(count("list", "cancelled")).isEqualTo(1);
+    }
+
+    @Test
+    void ignoresChainsOutsideThePrefix() {
+        Mono.just("ok").name("other.service").tag(OperationTimingHook.OPERATION_TAG, "read")
+                .map(Function.identity())
+                .block();
+
+        assertThat(meterRegistry.find("other.service").timers()).isEmpty();
+    }
+
+    private static <T> Mono<T> timed(final Mono<T> mono, final String operation) {
+        return mono.name("timed.service")
+                .tag(OperationTimingHook.OPERATION_TAG, operation)
+                .map(Function.identity());
+    }
+
+    private static <T> Flux<T> timed(final Flux<T> flux, final String operation) {
+        return flux.name("timed.service")
+                .tag(OperationTimingHook.OPERATION_TAG, operation)
+                .map(Function.identity());
+    }
+
+    private long count(final String operation, final String outcome) {
+        final Timer timer = meterRegistry.find("timed.service")
+                .tag(OperationTimingHook.OPERATION_TAG, operation)
+                .tag("outcome", outcome)
+                .timer();
+        return (timer != null) ? timer.count() : 0L;
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.repository;
+
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.model.History;
+import io.jrb.labs.tasksms.model.HistoryRollup;
+import io.jrb.labs.tasksms.model.HistoryType;
+import io.jrb.labs.tasksms.model.LookupValue;
+import io.jrb.labs.tasksms.model.LookupValueType;
+import io.jrb.labs.tasksms.model.RollupBucket;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BatchRepositoryTests {
+
+    @Autowired
+    private EntityBatchRepository entityBatchRepository;
+
+    @Autowired
+    private HistoryRollupRepository historyRollupRepository;
+
+    @Autowired
+    private HistoryRepository historyRepository;
+
+    @Autowired
+    private LookupValueRepository lookupValueRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Test
+    void insertsEveryRowOfABatchIncludingNullColumns() {
+        final String tenantId = "test-" + UUID.randomUUID().toString().substring(0, 8);
+        final Instant createdOn = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        shardRouter.onShard(0, entityBatchRepository.insertLookupValues(List.of(
+                LookupValue.builder().tenantId(tenantId).entityType(EntityType.TASK).entityId(7L)
+                        .valueType(LookupValueType.GROUP).value("ops").build(),
+                LookupValue.builder().tenantId(tenantId).entityType(EntityType.TASK).entityId(7L)
+                        .valueType(LookupValueType.TAG).value("urgent").build()))
+                .then(entityBatchRepository.insertHistory(List.of(
+                        history(tenantId, HistoryType.CREATED, createdOn),
+                        history(tenantId, HistoryType.UPDATED, null)))))
+                .block();
+
+        assertThat(shardRouter.onShard(0, lookupValueRepository
+                .findByTenantIdAndEntityTypeAndEntityId(tenantId, EntityType.TASK, 7L))
+                .map(LookupValue::getValue)
+                .collectList()
+                .block())
+                .containsExactlyInAnyOrder("ops", "urgent");
+        assertThat(shardRouter.onShard(0, historyRepository
+                .findByTenantIdAndEntityTypeAndEntityIdOrderById(tenantId, EntityType.TASK, 7L))
+                .collectList()
+                .block())
+                .extracting(History::getEventType, History::getCreatedOn)
+                .containsExactly(
+                        tuple(HistoryType.CREATED, createdOn),
+                        tuple(HistoryType.UPDATED, null));
+    }
+
+    @Test
+    void mergesRollupIncrementsIntoExistingBucketsPerTenant() {
+        final Instant bucketStart = Instant.parse("1990-01-01T00:00:00Z")
+                .plus(ThreadLocalRandom.current().nextInt(500_000), ChronoUnit.MINUTES);
+        final HistoryRollup created = HistoryRollup.builder()
+                .tenantId("acme")
+                .bucket(RollupBucket.MINUTE)
+                .bucketStart(bucketStart)
+                .entityType(EntityType.TASK)
+                .eventType(HistoryType.CREATED)
+                .count(2)
+                .build();
+        final HistoryRollup deleted = created.toBuilder().eventType(HistoryType.DELETED).count(1).build();
+        final HistoryRollup other = created.toBuilder().tenantId("globex").count(5).build();
+
+        shardRouter.onShard(0, historyRollupRepository.increment(List.of(created, deleted, other))
+                .then(historyRollupRepository.increment(List.of(created))))
+                .block();
+
+        assertThat(shardRouter.onShard(0, historyRollupRepository.findRollups(
+                "acme", RollupBucket.MINUTE, bucketStart, bucketStart.plusSeconds(60), EntityType.TASK))
+                .collectList()
+                .block())
+                .extracting(HistoryRollup::getEventType, HistoryRollup::getCount)
+                .containsExactlyInAnyOrder(
+                        tuple(HistoryType.CREATED, 4L),
+                        tuple(HistoryType.DELETED, 1L));
+    }
+
+    private static History history(final String tenantId, final HistoryType eventType, final Instant createdOn) {
+        return History.builder()
+                .tenantId(tenantId)
+                .entityType(EntityType.TASK)
+                .entityId(7L)
+                .entityGuid(UUID.randomUUID())
+                .eventType(eventType)
+                .createdOn(createdOn)
+                .build();
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class RequestDeadlineWebFilterTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestDeadlineWebFilter filter = new RequestDeadlineWebFilter(
+            Duration.ofMillis(100), Duration.ofSeconds(5), new String[0], meterRegistry);
+
+    @Test
+    void timesOutAHandlerThatHasNotCommittedTheResponse() {
+        final MockServerWebExchange exchange = exchange();
+
+        final Mono<Void> result = filter.filter(exchange, ignored -> Mono.delay(Duration.ofSeconds(5)).then());
+
+        assertThatThrownBy(result::block)
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT));
+        assertThat(exceeded()).isEqualTo(1.0);
+    }
+
+    @Test
+    void letsACommittedResponseFinishWritingPastTheDeadline() {
+        final MockServerWebExchange exchange = exchange();
+        final Flux<DataBuffer> body = Flux.interval(Duration.ofMillis(50))
+                .take(6)
+                .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(("line " + i + "\n")
+                        .getBytes(StandardCharsets.UTF_8)));
+
+        filter.filter(exchange, committed -> committed.getResponse().writeWith(body)).block(Duration.ofSeconds(5));
+
+        assertThat(exchange.getResponse().getBodyAsString().block()).contains("line 5");
+        assertThat(exceeded()).isEqualTo(0.0);
+    }
+
+    @Test
+    void givesEachShardQueryOfACommittedExportItsOwnTimeout() {
+        final MockServerWebExchange exchange = exchange();
+        final ShardRouter shardRouter = new ShardRouter(1, mock(TransactionalOperator.class));
+        final Flux<DataBuffer> chunks = shardRouter.onShard(0, Flux.interval(Duration.ofMillis(60))
+                .take(5)
+                .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(("chunk " + i + "\n")
+                        .getBytes(StandardCharsets.UTF_8))));
+
+        filter.filter(exchange, committed -> committed.getResponse().writeWith(chunks)).block(Duration.ofSeconds(5));
+
+        assertThat(exchange.getResponse().getBodyAsString().block()).contains("chunk 4");
+        assertThat(exceeded()).isEqualTo(0.0);
+    }
+
+    @Test
+    void countsDeadlinesExceededDownstreamOfTheFilter() {
+        final MockServerWebExchange exchange = exchange();
+
+        final Mono<Void> result = filter.filter(exchange, ignored -> Mono.deferContextual(context -> {
+            assertThat(context.hasKey(ShardRouter.DEADLINE_KEY)).isTrue();
+            return Mono.error(new TimeoutException("storage"));
+        }));
+
+        assertThatThrownBy(result::block)
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT));
+        assertThat(exceeded()).isEqualTo(1.0);
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/task/_export"));
+    }
+
+    private double exceeded() {
+        return meterRegistry.find("tasks.web.deadline.exceeded").counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionTokenWebFilterTests {
+
+    private final SessionTokenWebFilter filter = new SessionTokenWebFilter(Duration.ofSeconds(5), "secret");
+
+    @Test
+    void issuesASignedTokenOnWritesThatPinsLaterReads() {
+        final MockServerWebExchange write = MockServerWebExchange.from(MockServerHttpRequest.post("/api/task"));
+        filter.filter(write, exchange -> exchange.getResponse().setComplete()).block();
+        final String token = write.getResponse().getHeaders().getFirst(SessionTokenWebFilter.SESSION_TOKEN_HEADER);
+
+        assertThat(token).matches("\\d+\\.[A-Za-z0-9_-]+");
+        assertThat(isPinned(token)).isTrue();
+    }
+
+    @Test
+    void issuesNoTokenForReadsSentAsPost() {
+        final MockServerWebExchange read = MockServerWebExchange.from(MockServerHttpRequest.post("/api/task/_mget"));
+        filter.filter(read, exchange -> exchange.getResponse().setComplete()).block();
+
+        assertThat(read.getResponse().getHeaders().containsKey(SessionTokenWebFilter.SESSION_TOKEN_HEADER)).isFalse();
+    }
+
+    @Test
+    void ignoresUnsignedAndForgedTokens() {
+        final long now = System.currentTimeMillis();
+        final String token = filter.issueToken(now);
+
+        assertThat(isPinned(String.valueOf(now))).isFalse();
+        assertThat(isPinned((now + 1) + token.substring(token.indexOf('.')))).isFalse();
+        assertThat(isPinned(new SessionTokenWebFilter(Duration.ofSeconds(5), "other").issueToken(now))).isFalse();
+        assertThat(isPinned("garbage.!!")).isFalse();
+    }
+
+    @Test
+    void ignoresTokensOutsideTheWindow() {
+        final long now = System.currentTimeMillis();
+
+        assertThat(isPinned(filter.issueToken(now - Duration.ofSeconds(10).toMillis()))).isFalse();
+        assertThat(isPinned(filter.issueToken(now + Duration.ofHours(1).toMillis()))).isFalse();
+    }
+
+    private boolean isPinned(final String token) {
+        final ServerWebExchange read = MockServerWebExchange.from(MockServerHttpRequest.get("/api/task")
+                .header(SessionTokenWebFilter.SESSION_TOKEN_HEADER, token));
+        final AtomicBoolean pinned = new AtomicBoolean();
+        filter.filter(read, exchange -> Mono.deferContextual(context -> {
+            pinned.set(context.getOrDefault(ShardRouter.PRIMARY_KEY, false));
+            return Mono.empty();
+        })).block();
+        return pinned.get();
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import io.jrb.labs.tasksms.resource.TaskGuidsResource;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+class TaskBatchGetTests extends TaskApiTestSupport {
+
+    @Test
+    void returnsRequestedTasksInOrderAndFlagsUnknownGuids() {
+        final String tenantId = newTenant();
+        final TaskResource first = createTask(tenantId, "first");
+        final TaskResource second = createTask(tenantId, "second");
+        final UUID unknown = UUID.randomUUID();
+
+        webTestClient.post()
+                .uri("/api/task/_mget?projection=SUMMARY")
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(TaskGuidsResource.builder()
+                        .guid(first.getGuid())
+                        .guid(unknown)
+                        .guid(second.getGuid())
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(3)
+                .jsonPath("$[0].guid").isEqualTo(first.getGuid().toString())
+                .jsonPath("$[0].found").isEqualTo(true)
+                .jsonPath("$[0].task.name").isEqualTo("first")
+                .jsonPath("$[1].guid").isEqualTo(unknown.toString())
+                .jsonPath("$[1].found").isEqualTo(false)
+                .jsonPath("$[2].guid").isEqualTo(second.getGuid().toString())
+                .jsonPath("$[2].found").isEqualTo(true);
+    }
+
+    @Test
+    void rejectsMoreGuidsThanTheConfiguredMaximum() {
+        webTestClient.post()
+                .uri("/api/task/_mget")
+                .header(TenantWebFilter.TENANT_HEADER, newTenant())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(TaskGuidsResource.builder()
+                        .guids(IntStream.range(0, 1001).mapToObj(i -> UUID.randomUUID()).collect(Collectors.toList()))
+                        .build())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.model.History;
+import io.jrb.labs.tasksms.model.HistoryType;
+import io.jrb.labs.tasksms.model.Task;
+import io.jrb.labs.tasksms.repository.HistoryRepository;
+import io.jrb.labs.tasksms.repository.TaskRepository;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import io.jrb.labs.tasksms.service.EntityLookupService;
+import io.jrb.labs.tasksms.service.TaskRetentionServiceImpl;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskDeletionTests extends TaskApiTestSupport {
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private HistoryRepository historyRepository;
+
+    @Autowired
+    private EntityLookupService entityLookupService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Test
+    void softDeletedTasksAreHiddenUntilRestored() {
+        final String tenantId = newTenant();
+        final TaskResource task = createTask(tenantId, TaskResource.builder().name("deleted").tag("keep").build());
+
+        delete(tenantId, task);
+        webTestClient.get()
+                .uri("/api/task/{guid}", task.getGuid())
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().isNotFound();
+        webTestClient.get()
+                .uri("/api/task?tag=keep")
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TaskResource.class).hasSize(0);
+
+        webTestClient.post()
+                .uri("/api/task/{guid}/restore", task.getGuid())
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get()
+                .uri("/api/task?tag=keep")
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TaskResource.class).hasSize(1);
+
+        assertThat(history(tenantId, task))
+                .containsExactly(HistoryType.CREATED, HistoryType.DELETED, HistoryType.RESTORED);
+    }
+
+    @Test
+    void reaperPurgesTasksPastTheirRetention() {
+        final String tenantId = newTenant();
+        final TaskResource task = createTask(tenantId, "purged");
+        delete(tenantId, task);
+
+        final int purged = new TaskRetentionServiceImpl(taskRepository, entityLookupService, shardRouter,
+                Duration.ZERO, 500).purgeDeletedTasks().block();
+
+        assertThat(purged).isGreaterThanOrEqualTo(1);
+        webTestClient.post()
+                .uri("/api/task/{guid}/restore", task.getGuid())
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    private void delete(final String tenantId, final TaskResource task) {
+        webTestClient.delete()
+                .uri("/api/task/{guid}", task.getGuid())
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().is2xxSuccessful();
+    }
+
+    private List<HistoryType> history(final String tenantId, final TaskResource task) {
+        final Task entity = shardRouter.route(task.getGuid(),
+                taskRepository.findByTenantIdAndGuid(tenantId, task.getGuid())).block();
+        return shardRouter.route(task.getGuid(), historyRepository
+                .findByTenantIdAndEntityTypeAndEntityIdOrderById(tenantId, EntityType.TASK, entity.getId())
+                .map(History::getEventType))
+                .collectList()
+                .block();
+    }
+
+}
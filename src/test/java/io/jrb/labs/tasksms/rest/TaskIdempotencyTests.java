@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import io.jrb.labs.tasksms.resource.TaskResource;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "tasks.idempotency.store=r2dbc")
+class TaskIdempotencyTests extends TaskApiTestSupport {
+
+    @Test
+    void repeatedCreateWithTheSameKeyReturnsTheOriginalTask() {
+        final String tenantId = newTenant();
+        final String key = UUID.randomUUID().toString();
+        final TaskResource task = TaskResource.builder().name("once").build();
+
+        final TaskResource first = create(tenantId, key, task).expectStatus().isCreated()
+                .expectBody(TaskResource.class).returnResult().getResponseBody();
+        final TaskResource second = create(tenantId, key, task).expectStatus().isCreated()
+                .expectBody(TaskResource.class).returnResult().getResponseBody();
+
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(second.getGuid()).isEqualTo(first.getGuid());
+    }
+
+    @Test
+    void sameKeyWithADifferentBodyIsRejected() {
+        final String tenantId = newTenant();
+        final String key = UUID.randomUUID().toString();
+        create(tenantId, key, TaskResource.builder().name("first").build()).expectStatus().isCreated();
+
+        create(tenantId, key, TaskResource.builder().name("second").build())
+                .expectStatus().isEqualTo(422);
+    }
+
+    @Test
+    void keysAreScopedToTheTenant() {
+        final String key = UUID.randomUUID().toString();
+        final TaskResource task = TaskResource.builder().name("scoped").build();
+
+        final TaskResource first = create(newTenant(), key, task).expectStatus().isCreated()
+                .expectBody(TaskResource.class).returnResult().getResponseBody();
+        final TaskResource second = create(newTenant(), key, task).expectStatus().isCreated()
+                .expectBody(TaskResource.class).returnResult().getResponseBody();
+
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(second.getGuid()).isNotEqualTo(first.getGuid());
+    }
+
+    private WebTestClient.ResponseSpec create(final String tenantId, final String key, final TaskResource task) {
+        return webTestClient.post()
+                .uri("/api/task")
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .header(TaskController.IDEMPOTENCY_KEY_HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(task)
+                .exchange();
+    }
+
+}
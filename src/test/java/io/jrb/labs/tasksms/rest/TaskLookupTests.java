@@ -0,0 +1,60 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import io.jrb.labs.tasksms.resource.TaskResource;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskLookupTests extends TaskApiTestSupport {
+
+    @Test
+    void listsTasksCarryingAGroupOrTag() {
+        final String tenantId = newTenant();
+        createTask(tenantId, TaskResource.builder().name("backup").group("ops").tag("nightly").build());
+        createTask(tenantId, TaskResource.builder().name("deploy").group("ops").tag("manual").build());
+        createTask(tenantId, TaskResource.builder().name("report").group("finance").tag("nightly").build());
+
+        assertThat(list(tenantId, "group=ops")).extracting(TaskResource::getName)
+                .containsExactlyInAnyOrder("backup", "deploy");
+        assertThat(list(tenantId, "tag=nightly")).extracting(TaskResource::getName)
+                .containsExactlyInAnyOrder("backup", "report");
+        assertThat(list(tenantId, "tag=missing")).isEmpty();
+    }
+
+    private List<TaskResource> list(final String tenantId, final String query) {
+        return webTestClient.get()
+                .uri("/api/task?" + query)
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TaskResource.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.model.History;
+import io.jrb.labs.tasksms.model.HistoryType;
+import io.jrb.labs.tasksms.model.Task;
+import io.jrb.labs.tasksms.repository.HistoryRepository;
+import io.jrb.labs.tasksms.repository.TaskRepository;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import io.jrb.labs.tasksms.service.TaskQueueService;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = {
+        "tasks.scheduler.enabled=false",
+        "tasks.storage.r2dbc.shards=mem:queuedb;DB_CLOSE_DELAY=-1;"
+})
+class TaskQueueTests extends TaskApiTestSupport {
+
+    @Autowired
+    private TaskQueueService taskQueueService;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private HistoryRepository historyRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Test
+    void rejectsInvalidClaimParameters() {
+        final String tenantId = newTenant();
+        for (final String query : List.of("lease=banana", "lease=-5s", "lease=0s", "limit=0", "limit=-1")) {
+            webTestClient.post()
+                    .uri("/api/task/_claim?" + query)
+                    .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                    .exchange()
+                    .expectStatus().isBadRequest();
+        }
+        webTestClient.post()
+                .uri("/api/task/_lease/{leaseId}/heartbeat?lease=banana", UUID.randomUUID())
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void completesClaimedTasks() {
+        final String tenantId = newTenant();
+        final TaskResource task = createTask(tenantId, "work");
+
+        final JsonNode lease = claim(tenantId, "limit=5&lease=30s");
+        assertThat(lease.path("tasks")).hasSize(1);
+        assertThat(lease.path("tasks").get(0).path("guid").asText()).isEqualTo(task.getGuid().toString());
+        assertThat(lease.path("tasks").get(0).path("status").asText()).isEqualTo("RUNNING");
+        assertThat(claim(tenantId, "limit=5").path("tasks")).isEmpty();
+
+        final String leaseId = lease.path("leaseId").asText();
+        webTestClient.post()
+                .uri("/api/task/_lease/{leaseId}/complete", leaseId)
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[0].status").isEqualTo("STOPPED");
+        webTestClient.post()
+                .uri("/api/task/_lease/{leaseId}/complete", leaseId)
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void leavesRecurringTasksToTheScheduler() {
+        final String tenantId = newTenant();
+        createTask(tenantId, TaskResource.builder().name("nightly").recurrence("0 0 0 * * *").build());
+        final TaskResource task = createTask(tenantId, "once");
+
+        final JsonNode lease = claim(tenantId, "limit=5");
+
+        assertThat(lease.path("tasks")).hasSize(1);
+        assertThat(lease.path("tasks").get(0).path("guid").asText()).isEqualTo(task.getGuid().toString());
+    }
+
+    @Test
+    void claimsFutureTasksOnceTheyComeDue() throws InterruptedException {
+        final String tenantId = newTenant();
+        final TaskResource task = createTask(tenantId, TaskResource.builder()
+                .name("later")
+                .dueOn(Instant.now().plusMillis(500))
+                .build());
+
+        assertThat(claim(tenantId, "limit=5").path("tasks")).isEmpty();
+        Thread.sleep(600);
+
+        final JsonNode lease = claim(tenantId, "limit=5");
+        assertThat(lease.path("tasks")).hasSize(1);
+        assertThat(lease.path("tasks").get(0).path("guid").asText()).isEqualTo(task.getGuid().toString());
+    }
+
+    @Test
+    void returnsExpiredLeasesToTheQueueWithHistory() throws InterruptedException {
+        final String tenantId = newTenant();
+        final TaskResource task = createTask(tenantId, "expiring");
+
+        assertThat(claim(tenantId, "lease=100ms").path("tasks")).hasSize(1);
+        Thread.sleep(200);
+        taskQueueService.expireLeases().block();
+
+        final Task expired = shardRouter.route(task.getGuid(),
+                taskRepository.findByTenantIdAndGuid(tenantId, task.getGuid())).block();
+        assertThat(expired.getStatus().name()).isEqualTo("PENDING");
+        assertThat(expired.getLeaseId()).isNull();
+        assertThat(expired.getModifiedOn()).isAfter(task.getCreatedOn());
+        final List<HistoryType> events = shardRouter.route(task.getGuid(), historyRepository
+                .findByTenantIdAndEntityTypeAndEntityIdOrderById(tenantId, EntityType.TASK, expired.getId())
+                .map(History::getEventType))
+                .collectList()
+                .block();
+        assertThat(events).containsExactly(HistoryType.CREATED, HistoryType.STARTED, HistoryType.EXPIRED);
+        assertThat(claim(tenantId, "lease=30s").path("tasks")).hasSize(1);
+    }
+
+    private JsonNode claim(final String tenantId, final String query) {
+        return webTestClient.post()
+                .uri("/api/task/_claim?" + query)
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(JsonNode.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import io.jrb.labs.tasksms.model.TaskStatus;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.reactive.server.StatusAssertions;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskStatusTests extends TaskApiTestSupport {
+
+    @Test
+    void appliesGuardedTransitions() {
+        final String tenantId = newTenant();
+        final TaskResource task = createTask(tenantId, "transitions");
+        assertThat(task.getStatus()).isEqualTo(TaskStatus.PENDING);
+
+        transition(tenantId, task.getGuid(), "start").isOk()
+                .expectBody().jsonPath("$.status").isEqualTo("RUNNING");
+        transition(tenantId, task.getGuid(), "start").isEqualTo(409);
+        transition(tenantId, task.getGuid(), "cancel").isOk()
+                .expectBody().jsonPath("$.status").isEqualTo("CANCELLED");
+        transition(tenantId, task.getGuid(), "stop").isEqualTo(409);
+        transition(tenantId, task.getGuid(), "cancel").isEqualTo(409);
+    }
+
+    @Test
+    void rejectsTransitionOfUnknownTask() {
+        transition(newTenant(), UUID.randomUUID(), "start").isNotFound();
+    }
+
+    @Test
+    void pagesThroughTasksByStatus() {
+        final String tenantId = newTenant();
+        final TaskResource first = createTask(tenantId, "first");
+        final TaskResource second = createTask(tenantId, "second");
+        final TaskResource third = createTask(tenantId, "third");
+
+        final List<TaskResource> firstPage = listByStatus(tenantId, "status=PENDING&limit=2");
+        assertThat(firstPage).extracting(TaskResource::getGuid).containsExactly(first.getGuid(), second.getGuid());
+
+        final List<TaskResource> secondPage = listByStatus(tenantId,
+                "status=PENDING&limit=2&after=" + second.getGuid());
+        assertThat(secondPage).extracting(TaskResource::getGuid).containsExactly(third.getGuid());
+    }
+
+    @Test
+    void rejectsUnknownCursorAndNonPositiveLimit() {
+        final String tenantId = newTenant();
+        createTask(tenantId, "only");
+
+        webTestClient.get()
+                .uri("/api/task?status=PENDING&after={after}", UUID.randomUUID())
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get()
+                .uri("/api/task?status=PENDING&limit=0")
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private StatusAssertions transition(
+            final String tenantId,
+            final UUID guid,
+            final String action
+    ) {
+        return webTestClient.post()
+                .uri("/api/task/{guid}/{action}", guid, action)
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus();
+    }
+
+    private List<TaskResource> listByStatus(final String tenantId, final String query) {
+        return webTestClient.get()
+                .uri("/api/task?" + query)
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TaskResource.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+}
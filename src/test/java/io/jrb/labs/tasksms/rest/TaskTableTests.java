@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import io.jrb.labs.tasksms.resource.TaskTableResource;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskTableTests extends TaskApiTestSupport {
+
+    @Test
+    void returnsTheTaskListingAsColumnsLimitedToThePageSize() {
+        final String tenantId = newTenant();
+        for (int i = 0; i < 3; i++) {
+            createTask(tenantId, TaskResource.builder().name("columnar " + i).tag("table").build());
+        }
+
+        webTestClient.get()
+                .uri("/api/task?tag=table&limit=2")
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .accept(MediaType.parseMediaType(TaskTableResource.MEDIA_TYPE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(JsonNode.class)
+                .value(table -> {
+                    assertThat(table.path("fields")).extracting(JsonNode::asText)
+                            .containsExactly("guid", "name", "status");
+                    assertThat(table.path("rows")).hasSize(2);
+                    assertThat(table.path("rows").path(0).path(2).asText()).isEqualTo("PENDING");
+                });
+    }
+
+    @Test
+    void limitsEveryJsonListingToThePageSize() {
+        final String tenantId = newTenant();
+        for (int i = 0; i < 3; i++) {
+            createTask(tenantId, TaskResource.builder().name("paged " + i).group("pages").build());
+        }
+
+        for (final String query : List.of("limit=2", "group=pages&limit=2", "status=PENDING&limit=2")) {
+            webTestClient.get()
+                    .uri("/api/task?" + query)
+                    .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(TaskResource.class)
+                    .hasSize(2);
+        }
+    }
+
+    @Test
+    void rejectsACursorWithoutAStatus() {
+        webTestClient.get()
+                .uri("/api/task?after={after}", UUID.randomUUID())
+                .header(TenantWebFilter.TENANT_HEADER, newTenant())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void rejectsANonPositiveLimit() {
+        webTestClient.get()
+                .uri("/api/task?limit=0")
+                .header(TenantWebFilter.TENANT_HEADER, newTenant())
+                .accept(MediaType.parseMediaType(TaskTableResource.MEDIA_TYPE))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import io.jrb.labs.tasksms.resource.TaskResource;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskTransferTests extends TaskApiTestSupport {
+
+    @Test
+    void reimportingAnExportSkipsExistingTasks() {
+        final String tenantId = newTenant();
+        createTask(tenantId, TaskResource.builder().name("first").group("ops;eu").tag("urgent").build());
+        createTask(tenantId, "second");
+
+        final String export = webTestClient.get()
+                .uri("/api/task/_export?format=CSV")
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(export).contains("ops\\;eu");
+
+        webTestClient.post()
+                .uri("/api/task/_import?format=CSV")
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .contentType(MediaType.TEXT_PLAIN)
+                .bodyValue(export)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.imported").isEqualTo(0)
+                .jsonPath("$.skipped").isEqualTo(2);
+    }
+
+    @Test
+    void importsNewTasksWithTheirGuidsAndLookupValues() {
+        final String tenantId = newTenant();
+        final UUID guid = UUID.randomUUID();
+        final String line = "{\"guid\":\"" + guid + "\",\"name\":\"imported\","
+                + "\"groups\":[\"ops;eu\"],\"tags\":[\"x\"]}";
+
+        webTestClient.post()
+                .uri("/api/task/_import?format=NDJSON")
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(line + "\n" + line + "\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.imported").isEqualTo(1)
+                .jsonPath("$.skipped").isEqualTo(1);
+
+        webTestClient.get()
+                .uri("/api/task/{guid}?projection=DEEP", guid)
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("imported")
+                .jsonPath("$.groups[0]").isEqualTo("ops;eu")
+                .jsonPath("$.tags[0]").isEqualTo("x");
+    }
+
+}
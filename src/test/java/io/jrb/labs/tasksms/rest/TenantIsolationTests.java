@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.jrb.labs.tasksms.model.HistoryType;
+import io.jrb.labs.tasksms.outbox.InMemoryTaskEventPublisher;
+import io.jrb.labs.tasksms.resource.TaskEventResource;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TenantIsolationTests extends TaskApiTestSupport {
+
+    @Autowired
+    private InMemoryTaskEventPublisher taskEventPublisher;
+
+    @Test
+    void tasksOfAnotherTenantAreNotFound() {
+        final String owner = newTenant();
+        final String intruder = newTenant();
+        final UUID guid = createTask(owner, "private").getGuid();
+
+        webTestClient.get()
+                .uri("/api/task/{guid}", guid)
+                .header(TenantWebFilter.TENANT_HEADER, intruder)
+                .exchange()
+                .expectStatus().isNotFound();
+        webTestClient.patch()
+                .uri("/api/task/{guid}", guid)
+                .header(TenantWebFilter.TENANT_HEADER, intruder)
+                .contentType(MediaType.valueOf("application/json-patch+json"))
+                .bodyValue("[{\"op\":\"replace\",\"path\":\"/name\",\"value\":\"stolen\"}]")
+                .exchange()
+                .expectStatus().isNotFound();
+        webTestClient.post()
+                .uri("/api/task/{guid}/start", guid)
+                .header(TenantWebFilter.TENANT_HEADER, intruder)
+                .exchange()
+                .expectStatus().isNotFound();
+        webTestClient.delete()
+                .uri("/api/task/{guid}", guid)
+                .header(TenantWebFilter.TENANT_HEADER, intruder)
+                .exchange()
+                .expectStatus().isNotFound();
+
+        webTestClient.get()
+                .uri("/api/task/{guid}", guid)
+                .header(TenantWebFilter.TENANT_HEADER, owner)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("private")
+                .jsonPath("$.status").isEqualTo("PENDING");
+    }
+
+    @Test
+    void listingsOnlyIncludeTheCallersTasks() {
+        final String owner = newTenant();
+        final String other = newTenant();
+        final UUID guid = createTask(owner, "mine").getGuid();
+        createTask(other, "theirs");
+
+        webTestClient.get()
+                .uri("/api/task")
+                .header(TenantWebFilter.TENANT_HEADER, other)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TaskResource.class)
+                .value(tasks -> assertThat(tasks).extracting(TaskResource::getName).containsExactly("theirs"));
+
+        final JsonNode found = webTestClient.post()
+                .uri("/api/task/_mget")
+                .header(TenantWebFilter.TENANT_HEADER, other)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("guids", new UUID[] {guid}))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(JsonNode.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(found).hasSize(1);
+        assertThat(found.get(0).path("found").asBoolean()).isFalse();
+    }
+
+    @Test
+    void publishesEventsForTheOwningTenant() {
+        final String owner = newTenant();
+        final Mono<TaskEventResource> published = taskEventPublisher.events()
+                .filter(event -> owner.equals(event.getTenantId()))
+                .next()
+                .cache();
+        published.subscribe();
+
+        final UUID guid = createTask(owner, "announced").getGuid();
+
+        assertThat(published.block(Duration.ofSeconds(10)))
+                .returns(guid, TaskEventResource::getEntityGuid)
+                .returns(HistoryType.CREATED, TaskEventResource::getEventType);
+    }
+
+}
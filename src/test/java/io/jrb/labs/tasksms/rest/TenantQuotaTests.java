@@ -0,0 +1,71 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.rest;
+
+import io.jrb.labs.tasksms.resource.TaskResource;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.UUID;
+
+@TestPropertySource(properties = {
+        "tasks.tenancy.quota.max-tasks=3",
+        "tasks.storage.r2dbc.shards=mem:quotadb;DB_CLOSE_DELAY=-1;"
+})
+class TenantQuotaTests extends TaskApiTestSupport {
+
+    @Test
+    void rejectsTasksBeyondTheTenantQuotaUntilOneIsDeleted() {
+        final String tenantId = newTenant();
+        final UUID first = createTask(tenantId, "first").getGuid();
+        createTask(tenantId, "second");
+        createTask(tenantId, "third");
+
+        create(tenantId, "fourth").expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        createTask(newTenant(), "elsewhere");
+
+        webTestClient.delete()
+                .uri("/api/task/{guid}", first)
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().isNoContent();
+        create(tenantId, "fourth").expectStatus().isCreated();
+    }
+
+    private WebTestClient.ResponseSpec create(
+            final String tenantId,
+            final String name
+    ) {
+        return webTestClient.post()
+                .uri("/api/task")
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(TaskResource.builder().name(name).build())
+                .exchange();
+    }
+
+}
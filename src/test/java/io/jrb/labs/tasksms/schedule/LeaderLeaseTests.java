@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.schedule;
+
+import io.jrb.labs.tasksms.repository.SchedulerLeaseRepository;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class LeaderLeaseTests {
+
+    @Autowired
+    private SchedulerLeaseRepository schedulerLeaseRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    private String name;
+
+    @BeforeEach
+    void seedLease() {
+        name = "test-" + UUID.randomUUID().toString().substring(0, 8);
+        shardRouter.onShard(0, databaseClient
+                .sql("insert into t_scheduler_lease (lease_name, owner, expires_on)"
+                        + " values (:name, null, timestamp '1970-01-01 00:00:00')")
+                .bind("name", name)
+                .fetch()
+                .rowsUpdated())
+                .block();
+    }
+
+    @Test
+    void onlyOneNodeHoldsTheLeaseUntilItIsReleased() {
+        final LeaderLease first = lease();
+        final LeaderLease second = lease();
+        final AtomicInteger acquired = new AtomicInteger();
+        final AtomicInteger lost = new AtomicInteger();
+
+        first.renew(() -> Mono.fromRunnable(acquired::incrementAndGet), lost::incrementAndGet).block();
+        second.renew(() -> Mono.fromRunnable(acquired::incrementAndGet), lost::incrementAndGet).block();
+        first.renew(() -> Mono.fromRunnable(acquired::incrementAndGet), lost::incrementAndGet).block();
+
+        assertThat(first.isHeld()).isTrue();
+        assertThat(second.isHeld()).isFalse();
+        assertThat(acquired).hasValue(1);
+
+        first.release();
+        second.renew(() -> Mono.fromRunnable(acquired::incrementAndGet), lost::incrementAndGet).block();
+
+        assertThat(first.isHeld()).isFalse();
+        assertThat(second.isHeld()).isTrue();
+        assertThat(acquired).hasValue(2);
+        assertThat(lost).hasValue(0);
+    }
+
+    @Test
+    void losesTheLeaseOnceAnotherNodeTakesOverAfterExpiry() throws InterruptedException {
+        final LeaderLease first = lease(Duration.ofMillis(50));
+        final LeaderLease second = lease(Duration.ofMillis(50));
+        final AtomicInteger lost = new AtomicInteger();
+
+        first.renew(Mono::empty, lost::incrementAndGet).block();
+        Thread.sleep(100);
+        second.renew(Mono::empty, () -> {}).block();
+        first.renew(Mono::empty, lost::incrementAndGet).block();
+
+        assertThat(second.isHeld()).isTrue();
+        assertThat(first.isHeld()).isFalse();
+        assertThat(lost).hasValue(1);
+    }
+
+    private LeaderLease lease() {
+        return lease(Duration.ofSeconds(15));
+    }
+
+    private LeaderLease lease(final Duration duration) {
+        return new LeaderLease(schedulerLeaseRepository, shardRouter, name, duration);
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.schedule;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PeriodicJobTests {
+
+    @Test
+    void keepsRunningAfterFailuresUntilStopped() throws InterruptedException {
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(3);
+        final PeriodicJob job = PeriodicJob.every(Duration.ofMillis(10), "run test job", () -> Mono.fromRunnable(() -> {
+            runs.incrementAndGet();
+            latch.countDown();
+            throw new IllegalStateException("boom");
+        }));
+
+        job.start();
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        job.stop();
+        final int stoppedAt = runs.get();
+        Thread.sleep(50);
+
+        assertThat(runs.get()).isBetween(stoppedAt, stoppedAt + 1);
+    }
+
+    @Test
+    void runsWarmUpBeforeTheFirstTick() throws InterruptedException {
+        final StringBuffer order = new StringBuffer();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final PeriodicJob job = PeriodicJob.every(Duration.ofMillis(10), "run test job",
+                        () -> Mono.fromRunnable(() -> {
+                            order.append('t');
+                            latch.countDown();
+                        }))
+                .warmingUpWith(() -> Mono.fromRunnable(() -> order.append('w')));
+
+        job.start();
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        job.stop();
+
+        assertThat(order.toString()).startsWith("wt");
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.schedule;
+
+import io.jrb.labs.tasksms.model.Task;
+import io.jrb.labs.tasksms.model.TaskStatus;
+import io.jrb.labs.tasksms.repository.TaskRepository;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "tasks.scheduler.scan-interval=1h")
+@ActiveProfiles("test")
+class TaskSchedulerTests {
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Test
+    void nextOccurrenceIsStrictlyAfterTheGivenInstant() {
+        final Instant onTheHour = Instant.parse("2021-03-01T10:00:00Z");
+
+        assertThat(TaskScheduler.nextOccurrence("0 0 * * * *", onTheHour))
+                .isEqualTo(Instant.parse("2021-03-01T11:00:00Z"));
+        assertThat(TaskScheduler.nextOccurrence("0 0 * * * *", onTheHour.minusMillis(1)))
+                .isEqualTo(onTheHour);
+        assertThat(TaskScheduler.nextOccurrence("0 30 9 * * MON-FRI", Instant.parse("2021-03-05T10:00:00Z")))
+                .isEqualTo(Instant.parse("2021-03-08T09:30:00Z"));
+    }
+
+    @Test
+    void nextOccurrenceRejectsInvalidAndNeverFiringRecurrences() {
+        final Instant now = Instant.now();
+
+        assertThatThrownBy(() -> TaskScheduler.nextOccurrence("every day", now))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TaskScheduler.nextOccurrence("0 0 0 30 2 *", now))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void firesTasksWrittenWithoutPassingThroughThisScheduler() throws InterruptedException {
+        final Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        final Task task = Task.builder()
+                .guid(UUID.randomUUID())
+                .tenantId("test-scheduler")
+                .name("written elsewhere")
+                .status(TaskStatus.PENDING)
+                .dueOn(now.plusMillis(1_500))
+                .createdOn(now)
+                .build();
+        shardRouter.route(task.getGuid(), taskRepository.save(task)).block();
+
+        TaskStatus status = TaskStatus.PENDING;
+        for (int attempt = 0; attempt < 100 && status == TaskStatus.PENDING; attempt++) {
+            Thread.sleep(100);
+            status = shardRouter.route(task.getGuid(),
+                    taskRepository.findByTenantIdAndGuid(task.getTenantId(), task.getGuid()))
+                    .map(Task::getStatus)
+                    .block();
+        }
+
+        assertThat(status).isEqualTo(TaskStatus.RUNNING);
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.schedule;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimerWheelTests {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    void firesItemsOnTheTickOfTheirDeadline() {
+        final TimerWheel<String> wheel = new TimerWheel<>(100, 8, START);
+        wheel.schedule(START + 250, "a");
+        wheel.schedule(START + 450, "b");
+
+        assertThat(wheel.size()).isEqualTo(2);
+        assertThat(wheel.advance(START + 199)).isEmpty();
+        assertThat(wheel.advance(START + 299)).containsExactly("a");
+        assertThat(wheel.advance(START + 399)).isEmpty();
+        assertThat(wheel.advance(START + 499)).containsExactly("b");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cascadesDeadlinesBeyondTheFirstLevel() {
+        final TimerWheel<Integer> wheel = new TimerWheel<>(10, 4, START);
+        IntStream.of(5_000, 35, 170, 900).forEach(offset -> wheel.schedule(START + offset, offset));
+
+        assertThat(wheel.advance(START + 99)).containsExactly(35);
+        assertThat(wheel.advance(START + 199)).containsExactly(170);
+        assertThat(wheel.advance(START + 899)).isEmpty();
+        assertThat(wheel.advance(START + 999)).containsExactly(900);
+        assertThat(wheel.advance(START + 5_009)).containsExactly(5_000);
+    }
+
+    @Test
+    void neverFiresAnItemBeforeItsDeadline() {
+        final TimerWheel<Integer> wheel = new TimerWheel<>(7, 16, START);
+        IntStream.range(0, 500).forEach(offset -> wheel.schedule(START + offset * 13L, offset));
+
+        for (long now = START; now <= START + 7_000; now += 3) {
+            final long current = now;
+            assertThat(wheel.advance(now))
+                    .allSatisfy(offset -> assertThat(START + offset * 13L).isLessThanOrEqualTo(current));
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void expiresPastDeadlinesOnTheNextAdvance() {
+        final TimerWheel<String> wheel = new TimerWheel<>(100, 8, START);
+        wheel.advance(START + 1_000);
+        wheel.schedule(START + 10, "late");
+
+        assertThat(wheel.advance(START + 1_000)).containsExactly("late");
+    }
+
+    @Test
+    void clearDropsEveryPendingItem() {
+        final TimerWheel<Integer> wheel = new TimerWheel<>(100, 8, START);
+        IntStream.range(0, 20).forEach(i -> wheel.schedule(START + i * 1_000L, i));
+
+        wheel.clear(START + 50);
+
+        assertThat(wheel.size()).isZero();
+        assertThat(wheel.advance(START + 100_000)).isEmpty();
+        wheel.schedule(START + 250, 1);
+        assertThat(wheel.advance(START + 299)).containsExactly(1);
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.service;
+
+import io.jrb.labs.tasksms.model.EntityType;
+import io.jrb.labs.tasksms.model.History;
+import io.jrb.labs.tasksms.model.HistoryRollup;
+import io.jrb.labs.tasksms.model.HistoryType;
+import io.jrb.labs.tasksms.model.RollupBucket;
+import io.jrb.labs.tasksms.repository.HistoryRepository;
+import io.jrb.labs.tasksms.repository.HistoryRollupRepository;
+import io.jrb.labs.tasksms.shard.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HistoryStatsServiceTests {
+
+    private static final Duration SETTLE_DELAY = Duration.ofMillis(200);
+    private static final Instant OLD = Instant.parse("2021-03-01T10:15:00Z");
+
+    private final List<History> visible = new CopyOnWriteArrayList<>();
+    private final List<HistoryRollup> increments = new ArrayList<>();
+    private final AtomicLong mark = new AtomicLong();
+
+    private HistoryStatsServiceImpl historyStatsService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void createService() {
+        final HistoryRepository historyRepository = mock(HistoryRepository.class);
+        when(historyRepository.findBatchAfter(anyLong(), anyInt())).thenAnswer(invocation -> {
+            final long afterId = invocation.getArgument(0);
+            final int limit = invocation.getArgument(1);
+            return Flux.fromIterable(visible.stream()
+                    .filter(history -> history.getId() > afterId)
+                    .sorted(Comparator.comparingLong(History::getId))
+                    .limit(limit)
+                    .collect(Collectors.toList()));
+        });
+        final HistoryRollupRepository historyRollupRepository = mock(HistoryRollupRepository.class);
+        when(historyRollupRepository.findMark()).thenAnswer(invocation -> Mono.fromSupplier(mark::get));
+        when(historyRollupRepository.advanceMark(anyLong(), anyLong())).thenAnswer(invocation -> Mono.fromSupplier(
+                () -> mark.compareAndSet(invocation.getArgument(0), invocation.getArgument(1)) ? 1 : 0));
+        when(historyRollupRepository.increment(anyList())).thenAnswer(invocation -> Mono.fromRunnable(
+                () -> increments.addAll(invocation.getArgument(0))));
+        final TransactionalOperator transactionalOperator = mock(TransactionalOperator.class);
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        historyStatsService = new HistoryStatsServiceImpl(historyRepository, historyRollupRepository,
+                new ShardRouter(1, transactionalOperator), SETTLE_DELAY, 2);
+    }
+
+    @Test
+    void rollsUpRowsThatCommitBehindAHigherIdExactlyOnce() throws InterruptedException {
+        visible.add(history(1, OLD));
+        visible.add(history(3, Instant.now()));
+        assertThat(historyStatsService.rollUpHistory().block()).isEqualTo(1);
+        assertThat(mark).hasValue(1);
+
+        visible.add(history(2, OLD));
+        assertThat(historyStatsService.rollUpHistory().block()).isEqualTo(1);
+        assertThat(mark).hasValue(2);
+
+        Thread.sleep(SETTLE_DELAY.multipliedBy(2).toMillis());
+        assertThat(historyStatsService.rollUpHistory().block()).isEqualTo(1);
+        assertThat(mark).hasValue(3);
+        assertThat(historyStatsService.rollUpHistory().block()).isZero();
+
+        assertThat(hourlyCount(OLD)).isEqualTo(2);
+    }
+
+    @Test
+    void countsRowsWithoutACreationTimeWhenTheyAreRolledUp() {
+        visible.add(history(1, null));
+        final Instant before = Instant.now();
+
+        assertThat(historyStatsService.rollUpHistory().block()).isEqualTo(1);
+
+        assertThat(increments).filteredOn(rollup -> rollup.getBucket() == RollupBucket.MINUTE)
+                .singleElement()
+                .satisfies(rollup -> assertThat(rollup.getBucketStart())
+                        .isBetween(RollupBucket.MINUTE.truncate(before), Instant.now()));
+    }
+
+    @Test
+    void keepsRollupsOfDifferentTenantsApart() {
+        visible.add(history(1, OLD));
+        visible.add(history(2, OLD).toBuilder().tenantId("globex").build());
+
+        assertThat(historyStatsService.rollUpHistory().block()).isEqualTo(2);
+
+        assertThat(increments).filteredOn(rollup -> rollup.getBucket() == RollupBucket.HOUR)
+                .extracting(HistoryRollup::getTenantId, HistoryRollup::getCount)
+                .containsExactly(tuple("acme", 1L), tuple("globex", 1L));
+    }
+
+    private long hourlyCount(final Instant createdOn) {
+        return increments.stream()
+                .filter(rollup -> rollup.getBucket() == RollupBucket.HOUR)
+                .filter(rollup -> rollup.getBucketStart().equals(RollupBucket.HOUR.truncate(createdOn)))
+                .mapToLong(HistoryRollup::getCount)
+                .sum();
+    }
+
+    private static History history(final long id, final Instant createdOn) {
+        return History.builder()
+                .id(id)
+                .tenantId("acme")
+                .entityType(EntityType.TASK)
+                .entityId(id)
+                .eventType(HistoryType.CREATED)
+                .createdOn(createdOn)
+                .build();
+    }
+
+}
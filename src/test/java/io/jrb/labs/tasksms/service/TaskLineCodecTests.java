@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.service;
+
+import io.jrb.labs.tasksms.model.TaskStatus;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskLineCodecTests {
+
+    static Stream<Arguments> codecs() {
+        return Stream.of(
+                Arguments.of(new CsvTaskLineCodec()),
+                Arguments.of(new NdjsonTaskLineCodec(Jackson2ObjectMapperBuilder.json().build()))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void roundTripsEveryField(final TaskLineCodec codec) {
+        final TaskResource task = TaskResource.builder()
+                .guid(UUID.randomUUID())
+                .name("name, with \"quotes\"")
+                .description("multi\nline, description")
+                .status(TaskStatus.RUNNING)
+                .dueOn(Instant.parse("2021-03-01T10:15:30.123Z"))
+                .recurrence("0 0 * * * *")
+                .createdBy("creator")
+                .createdOn(Instant.parse("2021-02-01T00:00:00Z"))
+                .modifiedBy("modifier")
+                .modifiedOn(Instant.parse("2021-02-02T00:00:00Z"))
+                .group("ops;eu")
+                .group("back\\slash")
+                .tag("a")
+                .tag("b;c;")
+                .build();
+
+        assertThat(codec.decode(codec.encode(task))).isEqualTo(task);
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void roundTripsSparseTask(final TaskLineCodec codec) {
+        final TaskResource task = TaskResource.builder()
+                .guid(UUID.randomUUID())
+                .name("sparse")
+                .build();
+
+        assertThat(codec.decode(codec.encode(task))).isEqualTo(task);
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.settings;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConfigSnapshotHolderTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void bootWithoutConfigServerDoesNotWriteTheCache() {
+        final Path cacheFile = directory.resolve("config-cache.properties");
+        final StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("local", Map.of("message", "local")));
+
+        final ConfigSnapshotHolder holder = newHolder(environment, cacheFile);
+
+        assertThat(holder.current().getValues()).containsEntry("message", "local");
+        assertThat(cacheFile).doesNotExist();
+    }
+
+    @Test
+    void cachesOnlyValuesServedByTheConfigServer() throws Exception {
+        final Path cacheFile = directory.resolve("config-cache.properties");
+        final StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("local", Map.of("other", "local")));
+        environment.getPropertySources()
+                .addFirst(new MapPropertySource("configserver:test", Map.of("message", "served")));
+
+        final ConfigSnapshotHolder holder = newHolder(environment, cacheFile);
+
+        assertThat(holder.current().getValues())
+                .containsEntry("message", "served")
+                .containsEntry("other", "local");
+        assertThat(Files.readString(cacheFile)).contains("message=served").doesNotContain("other");
+    }
+
+    @Test
+    void fallsBackToCachedServerValuesWhenTheServerIsUnavailable() {
+        final Path cacheFile = directory.resolve("config-cache.properties");
+        final StandardEnvironment served = new StandardEnvironment();
+        served.getPropertySources().addFirst(new MapPropertySource("configserver:test", Map.of("message", "served")));
+        newHolder(served, cacheFile);
+
+        final StandardEnvironment offline = new StandardEnvironment();
+        offline.getPropertySources().addFirst(new MapPropertySource("local", Map.of("message", "local")));
+        final ConfigSnapshotHolder holder = newHolder(offline, cacheFile);
+
+        assertThat(holder.current().getValues()).containsEntry("message", "served");
+        assertThat(holder.reload().getValues()).containsEntry("message", "served");
+    }
+
+    private ConfigSnapshotHolder newHolder(final StandardEnvironment environment, final Path cacheFile) {
+        final List<String> keys = List.of("message", "other");
+        return new ConfigSnapshotHolder(environment, keys, cacheFile, new SimpleMeterRegistry());
+    }
+
+}
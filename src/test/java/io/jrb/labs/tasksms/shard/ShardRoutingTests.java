@@ -0,0 +1,95 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.shard;
+
+import io.jrb.labs.tasksms.repository.TaskRepository;
+import io.jrb.labs.tasksms.resource.TaskResource;
+import io.jrb.labs.tasksms.rest.TaskApiTestSupport;
+import io.jrb.labs.tasksms.rest.TenantWebFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ActiveProfiles("sharded")
+class ShardRoutingTests extends TaskApiTestSupport {
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Test
+    void storesEachTaskOnlyOnTheShardItsGuidHashesTo() {
+        final String tenantId = newTenant();
+        final List<UUID> guids = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            guids.add(createTask(tenantId, "sharded-" + i).getGuid());
+        }
+
+        assertThat(shardRouter.getShardCount()).isEqualTo(4);
+        for (final UUID guid : guids) {
+            for (final int shard : shardRouter.shards()) {
+                final boolean found = shardRouter
+                        .onShard(shard, taskRepository.findByTenantIdAndGuid(tenantId, guid))
+                        .blockOptional()
+                        .isPresent();
+                assertThat(found).as("task %s on shard %d", guid, shard).isEqualTo(shard == shardRouter.shardFor(guid));
+            }
+        }
+        webTestClient.get()
+                .uri("/api/task")
+                .header(TenantWebFilter.TENANT_HEADER, tenantId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TaskResource.class)
+                .hasSize(guids.size());
+    }
+
+    @Test
+    void ignoresClientSuppliedGuids() {
+        final String tenantId = newTenant();
+        final UUID guid = UUID.randomUUID();
+
+        final TaskResource first = createTask(tenantId, TaskResource.builder().guid(guid).name("first").build());
+        final TaskResource second = createTask(tenantId, TaskResource.builder().guid(guid).name("second").build());
+
+        assertThat(first.getGuid()).isNotEqualTo(guid);
+        assertThat(second.getGuid()).isNotEqualTo(guid).isNotEqualTo(first.getGuid());
+    }
+
+    @Test
+    void refusesQueriesThatDoNotSelectAShard() {
+        assertThatThrownBy(() -> taskRepository.findByTenantIdAndGuid("default", UUID.randomUUID()).block())
+                .hasMessageContaining("No shard selected");
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.tasksms.tenant;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TenantQuotasTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Map<String, Long> storedTasks = new ConcurrentHashMap<>();
+    private final AtomicInteger recounts = new AtomicInteger();
+
+    @Test
+    void limitsRequestsPerTenantWithinASecond() {
+        final TenantQuotas quotas = quotas(3, 0, Duration.ofMinutes(5));
+
+        final long accepted = IntStream.range(0, 10).filter(i -> quotas.tryAcquireRequest("a")).count();
+
+        assertThat(accepted).isBetween(3L, 6L);
+        assertThat(quotas.tryAcquireRequest("b")).isTrue();
+    }
+
+    @Test
+    void rejectsTasksBeyondTheQuota() {
+        final TenantQuotas quotas = quotas(0, 2, Duration.ofMinutes(5));
+        storedTasks.put("a", 1L);
+
+        assertThat(quotas.reserveTasks("a", 1, Mono.just("created")).block()).isEqualTo("created");
+        assertThatThrownBy(() -> quotas.reserveTasks("a", 1, Mono.just("created")).block())
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+        assertThat(quotas.reserveTasks("b", 2, Mono.just("created")).block()).isEqualTo("created");
+        assertThat(recounts).hasValue(2);
+    }
+
+    @Test
+    void releasesTheReservationWhenTheOperationFailsOrIsCancelled() {
+        final TenantQuotas quotas = quotas(0, 1, Duration.ofMinutes(5));
+
+        assertThatThrownBy(() -> quotas.reserveTasks("a", 1, Mono.error(new IllegalStateException("boom"))).block())
+                .isInstanceOf(IllegalStateException.class);
+        final Disposable pending = quotas.reserveTasks("a", 1, Mono.never()).subscribe();
+        pending.dispose();
+
+        assertThat(quotas.reserveTasks("a", 1, Mono.just("created")).block()).isEqualTo("created");
+    }
+
+    @Test
+    void doesNotReleaseAgainstARecountedTotal() throws InterruptedException {
+        final TenantQuotas quotas = quotas(0, 2, Duration.ofMillis(50));
+        storedTasks.put("a", 1L);
+        quotas.reserveTasks("a", 1, Mono.just("created")).block();
+
+        Thread.sleep(100);
+        storedTasks.put("a", 2L);
+        quotas.releaseTasks("a", 1);
+        quotas.releaseTasks("a", 1);
+
+        assertThatThrownBy(() -> quotas.reserveTasks("a", 1, Mono.just("created")).block())
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void tagsRejectionsOnlyForConfiguredTenants() {
+        final TenantQuotas quotas = quotas(1, 0, Duration.ofMinutes(5));
+
+        for (final String tenantId : List.of("known", "stranger-1", "stranger-2")) {
+            quotas.tryAcquireRequest(tenantId);
+            quotas.tryAcquireRequest(tenantId);
+            quotas.tryAcquireRequest(tenantId);
+        }
+
+        assertThat(meterRegistry.find("tasks.tenancy.rejected").counters())
+                .extracting(counter -> counter.getId().getTag("tenant"))
+                .containsExactlyInAnyOrder("known", TenantQuotas.OTHER_TENANT_TAG);
+    }
+
+    @Test
+    void tracksABoundedNumberOfTenants() {
+        final TenantQuotas quotas = quotas(10, 0, Duration.ofMinutes(5));
+
+        IntStream.range(0, 50).forEach(i -> quotas.tryAcquireRequest("tenant-" + i));
+
+        assertThat(meterRegistry.get("tasks.tenancy.tenants").gauge().value()).isEqualTo(4.0);
+    }
+
+    private TenantQuotas quotas(final int requestsPerSecond, final long maxTasks, final Duration recountInterval) {
+        return new TenantQuotas(requestsPerSecond, maxTasks, recountInterval, 4, List.of("known"), tenantId -> {
+            recounts.incrementAndGet();
+            return Mono.fromSupplier(() -> storedTasks.getOrDefault(tenantId, 0L));
+        }, meterRegistry);
+    }
+
+}